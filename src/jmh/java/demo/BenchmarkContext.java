@@ -0,0 +1,68 @@
+package demo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.util.StreamUtils;
+
+/**
+ * Starts the application against an in-memory H2 database and a generated
+ * password dictionary, without a web server unless startServer is used.
+ */
+public final class BenchmarkContext {
+
+	private BenchmarkContext() {
+	}
+
+	public static ConfigurableApplicationContext start(int dictionarySize) throws IOException {
+		return start(dictionarySize, WebApplicationType.NONE, false);
+	}
+
+	// Plain HTTP on a random port
+	public static ConfigurableApplicationContext startServer(int dictionarySize, boolean virtualThreads)
+			throws IOException {
+		return start(dictionarySize, WebApplicationType.SERVLET, virtualThreads);
+	}
+
+	// Netty and the R2DBC client API on a random port, same database as the servlet stack
+	public static ConfigurableApplicationContext startReactiveServer(int dictionarySize) throws IOException {
+		return start(dictionarySize, WebApplicationType.REACTIVE, false);
+	}
+
+	private static ConfigurableApplicationContext start(int dictionarySize, WebApplicationType webApplicationType,
+			boolean virtualThreads) throws IOException {
+		Path dictionary = writeDictionary(dictionarySize);
+		String template;
+		try (InputStream inputStream = new ClassPathResource("config-bench.xml").getInputStream()) {
+			template = StreamUtils.copyToString(inputStream, StandardCharsets.UTF_8);
+		}
+		Path config = Files.createTempFile("config-bench", ".xml");
+		config.toFile().deleteOnExit();
+		Files.write(config, template.replace("@DICTIONARY_FILE@", dictionary.toString())
+				.replace("@VIRTUAL_THREADS@", String.valueOf(virtualThreads)).getBytes(StandardCharsets.UTF_8));
+		// As arguments, default properties would lose to config.file in application.properties
+		return new SpringApplicationBuilder(CommunicationLtdApplication.class).web(webApplicationType)
+				.run("--config.file=" + config.toUri(), "--config.reload-interval=0", "--spring.jpa.show-sql=false",
+						"--logging.level.org.hibernate.type.descriptor.sql.BasicBinder=info");
+	}
+
+	public static Path writeDictionary(int size) throws IOException {
+		List<String> words = new ArrayList<>(size);
+		for (int i = 0; i < size; i++) {
+			words.add("Password" + i + "!");
+		}
+		Path dictionary = Files.createTempFile("dictionary", ".txt");
+		dictionary.toFile().deleteOnExit();
+		return Files.write(dictionary, words);
+	}
+
+}
@@ -0,0 +1,189 @@
+package demo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import demo.config.VirtualThreads;
+
+/**
+ * Compares how the server copes with many concurrent connections on platform
+ * request threads, on virtual ones and on the reactive stack (Netty and
+ * R2DBC).
+ *
+ * For each mode the application is started on a random port, CLIENT_ROWS
+ * clients are inserted and every concurrency level runs that many clients in
+ * a closed loop against the path for the given number of seconds. Prints
+ * requests per second, the 50th and 99th percentile latency and the failed
+ * requests.
+ *
+ * Arguments, all optional: concurrency levels (default 50,200,800), seconds
+ * per level (default 10) and path (default /clients/getAll?size=50). Only the
+ * client endpoints exist in the reactive mode. The virtual mode is skipped on
+ * a JVM without virtual threads. Against the in-memory database the database
+ * pool is the limit early on, the difference shows with a remote MySQL.
+ */
+public final class VirtualThreadLoadTest {
+	private static final int DICTIONARY_SIZE = 10_000;
+	private static final int WARM_UP_SECONDS = 3;
+	private static final int CLIENT_ROWS = 1000;
+
+	private enum Mode {
+		PLATFORM, VIRTUAL, REACTIVE
+	}
+
+	private VirtualThreadLoadTest() {
+	}
+
+	public static void main(String[] args) throws Exception {
+		int[] concurrencies = Arrays
+				.stream((args.length > 0 ? args[0] : "50,200,800").split(","))
+				.mapToInt(Integer::parseInt).toArray();
+		int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		String path = args.length > 2 ? args[2] : "/clients/getAll?size=50";
+		// Otherwise HttpURLConnection keeps 5 connections alive and opens a new one for every other request
+		System.setProperty("http.maxConnections", String.valueOf(Arrays.stream(concurrencies).max().getAsInt()));
+
+		List<String> results = new ArrayList<>();
+		results.add(String.format("%-9s %11s %10s %8s %8s %7s", "mode", "connections", "requests/s", "p50 ms",
+				"p99 ms", "errors"));
+		for (Mode mode : Mode.values()) {
+			String name = mode.name().toLowerCase(Locale.ROOT);
+			if (mode == Mode.VIRTUAL && !VirtualThreads.isSupported()) {
+				results.add(String.format("%-9s skipped, this JVM has no virtual threads", name));
+				continue;
+			}
+			try (ConfigurableApplicationContext context = mode == Mode.REACTIVE
+					? BenchmarkContext.startReactiveServer(DICTIONARY_SIZE)
+					: BenchmarkContext.startServer(DICTIONARY_SIZE, mode == Mode.VIRTUAL)) {
+				insertClients(context.getBean(JdbcTemplate.class));
+				int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+				URL url = new URL("http://localhost:" + port + path);
+				run(url, concurrencies[0], WARM_UP_SECONDS);
+				for (int concurrency : concurrencies) {
+					Result result = run(url, concurrency, seconds);
+					results.add(String.format("%-9s %11d %10.1f %8.1f %8.1f %7d", name, concurrency,
+							result.requests / (double) seconds, result.percentile(0.5), result.percentile(0.99),
+							result.errors));
+				}
+			}
+		}
+		results.forEach(System.out::println);
+	}
+
+	// The in-memory database lives as long as the JVM, so each mode starts from an empty table
+	private static void insertClients(JdbcTemplate jdbcTemplate) {
+		jdbcTemplate.update("DELETE FROM clients");
+		List<Object[]> rows = new ArrayList<>(CLIENT_ROWS);
+		for (int i = 0; i < CLIENT_ROWS; i++) {
+			rows.add(new Object[] { String.format("%09d", i), "Client" + i, "Last" + i, "050" + i, new Date() });
+		}
+		jdbcTemplate.batchUpdate("INSERT INTO clients (id, client_name, last_name, phone_number, creation_timestamp)"
+				+ " VALUES(?, ?, ?, ?, ?)", rows);
+	}
+
+	private static Result run(URL url, int concurrency, int seconds) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+		Client[] clients = new Client[concurrency];
+		CountDownLatch done = new CountDownLatch(concurrency);
+		for (int i = 0; i < concurrency; i++) {
+			Client client = new Client(url, deadline, done);
+			clients[i] = client;
+			Thread thread = new Thread(client, "load-client-" + i);
+			thread.setDaemon(true);
+			thread.start();
+		}
+		done.await();
+		Result result = new Result();
+		for (Client client : clients) {
+			result.add(client);
+		}
+		return result;
+	}
+
+	private static final class Client implements Runnable {
+		private final URL url;
+		private final long deadline;
+		private final CountDownLatch done;
+		private long[] latencies = new long[1024];
+		private int requests;
+		private int errors;
+
+		private Client(URL url, long deadline, CountDownLatch done) {
+			this.url = url;
+			this.deadline = deadline;
+			this.done = done;
+		}
+
+		@Override
+		public void run() {
+			byte[] buffer = new byte[8192];
+			try {
+				while (System.nanoTime() < this.deadline) {
+					long start = System.nanoTime();
+					try {
+						HttpURLConnection connection = (HttpURLConnection) this.url.openConnection();
+						int status = connection.getResponseCode();
+						try (InputStream body = status < 400 ? connection.getInputStream()
+								: connection.getErrorStream()) {
+							// Read to the end so the connection can be reused
+							while (body != null && body.read(buffer) != -1) {
+							}
+						}
+						if (status >= 400) {
+							this.errors++;
+							continue;
+						}
+					} catch (IOException e) {
+						this.errors++;
+						continue;
+					}
+					if (this.requests == this.latencies.length) {
+						this.latencies = Arrays.copyOf(this.latencies, this.requests << 1);
+					}
+					this.latencies[this.requests++] = System.nanoTime() - start;
+				}
+			} finally {
+				this.done.countDown();
+			}
+		}
+	}
+
+	private static final class Result {
+		private long[] latencies = new long[0];
+		private long requests;
+		private long errors;
+
+		private void add(Client client) {
+			int size = this.latencies.length;
+			this.latencies = Arrays.copyOf(this.latencies, size + client.requests);
+			System.arraycopy(client.latencies, 0, this.latencies, size, client.requests);
+			this.requests += client.requests;
+			this.errors += client.errors;
+		}
+
+		// In milliseconds
+		private double percentile(double percentile) {
+			if (this.latencies.length == 0) {
+				return 0;
+			}
+			long[] sorted = this.latencies.clone();
+			Arrays.sort(sorted);
+			int index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+			return sorted[Math.max(0, index)] / 1_000_000.0;
+		}
+	}
+
+}
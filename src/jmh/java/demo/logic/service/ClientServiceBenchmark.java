@@ -0,0 +1,71 @@
+package demo.logic.service;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import demo.BenchmarkContext;
+import demo.boundary.ClientBoundaryAddNewClient;
+import demo.boundary.ClientBoundaryBase;
+import demo.logic.service.interfaces.ClientService;
+
+/**
+ * Rows per second added through the single client path and through the bulk
+ * import.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ClientServiceBenchmark {
+	private static final int BULK_ROWS = 1000;
+	private ConfigurableApplicationContext context;
+	private ClientService clientService;
+	private long nextId;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.context = BenchmarkContext.start(1000);
+		this.clientService = this.context.getBean(ClientService.class);
+		this.clientService.deleteAll();
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public ClientBoundaryBase addNewClient() {
+		return this.clientService.addNewClient(ClientBoundaryAddNewClient.ClientWithDetailsBuilder()
+				.id(String.valueOf(this.nextId++)).clientName("Client").lastName("Benchmark")
+				.phoneNumber("0500000000").build());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BULK_ROWS)
+	public byte[] addClients() throws IOException {
+		StringBuilder body = new StringBuilder();
+		for (int i = 0; i < BULK_ROWS; i++) {
+			body.append("{\"id\":\"").append(this.nextId++)
+					.append("\",\"clientName\":\"Client\",\"lastName\":\"Benchmark\",\"phoneNumber\":\"0500000000\"}\n");
+		}
+		ByteArrayOutputStream report = new ByteArrayOutputStream();
+		this.clientService.addClients(new ByteArrayInputStream(body.toString().getBytes(StandardCharsets.UTF_8)),
+				report);
+		return report.toByteArray();
+	}
+
+}
@@ -0,0 +1,69 @@
+package demo.logic.service;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import demo.BenchmarkContext;
+import demo.boundary.UserBoundaryBase;
+import demo.boundary.UserBoundaryBaseWithPassword;
+import demo.boundary.UserBoundaryPasswordChange;
+import demo.boundary.UserBoundarySignup;
+import demo.logic.service.interfaces.UserService;
+
+/**
+ * Full login and change password flows against an in-memory H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UserServiceBenchmark {
+	private static final String USERNAME = "benchmark";
+	// More passwords than the configured history so that changing back and forth stays valid
+	private static final String[] PASSWORDS = { "Bench#Mark1a", "Bench#Mark2b", "Bench#Mark3c", "Bench#Mark4d",
+			"Bench#Mark5e" };
+	private ConfigurableApplicationContext context;
+	private UserService userService;
+	private int current;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.context = BenchmarkContext.start(10_000);
+		this.userService = this.context.getBean(UserService.class);
+		this.userService.deleteAll();
+		this.userService.signup(UserBoundarySignup.userWithPasswordAndEmailBuilder().username(USERNAME)
+				.password(PASSWORDS[0]).email("benchmark@communicationltd.com").build());
+		this.current = 0;
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	public UserBoundaryBase login() {
+		return this.userService.login(UserBoundaryBaseWithPassword.userWithPasswordBuilder().username(USERNAME)
+				.password(PASSWORDS[this.current]).build());
+	}
+
+	@Benchmark
+	public UserBoundaryBase changePassword() {
+		int next = (this.current + 1) % PASSWORDS.length;
+		UserBoundaryBase result = this.userService.changePassword(UserBoundaryPasswordChange
+				.userWithOldAndNewPasswordsBuilder().username(USERNAME).password(PASSWORDS[this.current])
+				.newPassword(PASSWORDS[next]).build());
+		this.current = next;
+		return result;
+	}
+
+}
@@ -0,0 +1,49 @@
+package demo.logic.utilities;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import demo.BenchmarkContext;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class PasswordDictionaryBenchmark {
+	@Param({ "1000", "100000", "1000000" })
+	private int dictionarySize;
+	private PasswordDictionary passwordDictionary;
+	private String knownPassword;
+
+	@Setup
+	public void setUp() throws IOException {
+		this.passwordDictionary = new PasswordDictionary();
+		this.passwordDictionary.load(BenchmarkContext.writeDictionary(this.dictionarySize).toString(), 0);
+		this.knownPassword = "Password" + (this.dictionarySize / 2) + "!";
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.passwordDictionary.close();
+	}
+
+	@Benchmark
+	public boolean validateDictionaryHit() {
+		return this.passwordDictionary.contains(this.knownPassword);
+	}
+
+	@Benchmark
+	public boolean validateDictionaryMiss() {
+		return this.passwordDictionary.contains("Bench#Mark1a");
+	}
+
+}
@@ -0,0 +1,101 @@
+package demo.logic.utilities;
+
+import java.io.IOException;
+import java.security.NoSuchAlgorithmException;
+import java.security.spec.InvalidKeySpecException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+
+import demo.BenchmarkContext;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PasswordManagerBenchmark {
+	private static final String PASSWORD = "Bench#Mark1a";
+	private ConfigurableApplicationContext context;
+	private PasswordManager passwordManager;
+	private byte[] salt;
+	private Gson gson;
+	private String oldPasswords;
+	private PasswordHistory passwordHistory;
+	private PasswordHash newPasswordHash;
+
+	@Setup
+	public void setUp() throws IOException, NoSuchAlgorithmException, InvalidKeySpecException {
+		this.context = BenchmarkContext.start(10_000);
+		this.passwordManager = this.context.getBean(PasswordManager.class);
+		this.salt = new byte[16];
+		this.passwordManager.generateSaltValue(this.salt);
+		this.gson = new Gson();
+		int capacity = this.passwordManager.getPasswordConfig().getHistory();
+		List<String> history = new ArrayList<>();
+		this.passwordHistory = PasswordHistory.empty(capacity);
+		for (int i = 0; i < capacity; i++) {
+			PasswordHash passwordHash = this.passwordManager.hash(PASSWORD + i,
+					this.passwordManager.newParameters(this.salt));
+			history.add(this.passwordManager.encode(passwordHash));
+			this.passwordHistory = this.passwordHistory.add(passwordHash, capacity);
+		}
+		this.oldPasswords = this.gson.toJson(history);
+		this.newPasswordHash = this.passwordManager.hash(PASSWORD, this.passwordManager.newParameters(this.salt));
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.context.close();
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public byte[] encrypt() throws NoSuchAlgorithmException, InvalidKeySpecException {
+		return this.passwordManager.encrypt(PASSWORD, this.salt);
+	}
+
+	@Benchmark
+	public boolean validateSymbols() {
+		return this.passwordManager.validateSymbols(PASSWORD);
+	}
+
+	@Benchmark
+	public String generateRandomPassword() {
+		return this.passwordManager.generateRandomPassword();
+	}
+
+	@Benchmark
+	public String oldPasswordsRoundTrip() {
+		List<String> history = this.gson.fromJson(this.oldPasswords, new TypeToken<List<String>>() {
+		}.getType());
+		return this.gson.toJson(history);
+	}
+
+	// The comparisons of a history check without the hashing, compare with oldPasswordsRoundTrip
+	@Benchmark
+	public boolean passwordHistoryMatches() {
+		boolean matches = false;
+		for (int i = 0; i < this.passwordHistory.size(); i++) {
+			matches |= this.passwordHistory.matches(i, this.newPasswordHash.getHash());
+		}
+		return matches;
+	}
+
+	@Benchmark
+	public PasswordHistory passwordHistoryAdd() {
+		return this.passwordHistory.add(this.newPasswordHash, this.passwordManager.getPasswordConfig().getHistory());
+	}
+
+}
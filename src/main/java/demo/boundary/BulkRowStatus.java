@@ -0,0 +1,5 @@
+package demo.boundary;
+
+public enum BulkRowStatus {
+	CREATED, DUPLICATE, INVALID, FAILED
+}
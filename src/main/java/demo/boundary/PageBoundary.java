@@ -0,0 +1,18 @@
+package demo.boundary;
+
+import java.util.List;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+public class PageBoundary<T> {
+	private List<T> items;
+	// Passed back as the cursor to get the following page, null on the last page
+	private String next;
+}
@@ -0,0 +1,23 @@
+package demo.config;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@ToString
+@XmlAccessorType(XmlAccessType.FIELD)
+public class CacheConfig {
+	private int userCacheSize;
+	private long userCacheTtl;
+	private long negativeCacheTtl;
+	private long invalidationPollInterval;
+	private int usernameFilterExpectedUsers;
+	private String usernameFilterFile;
+}
@@ -1,12 +1,12 @@
 package demo.config;
 
-import java.util.Map;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 
 import javax.sql.DataSource;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.jdbc.DataSourceBuilder;
 import org.springframework.boot.web.embedded.tomcat.TomcatServletWebServerFactory;
 import org.springframework.boot.web.server.Http2;
 import org.springframework.boot.web.server.Ssl;
@@ -17,6 +17,7 @@ import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 
 import demo.logic.utilities.XMLReader;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.AllArgsConstructor;
 
 @Configuration
@@ -26,9 +27,7 @@ public class ConfigSetter implements WebServerFactoryCustomizer<TomcatServletWeb
 
     @Override
     public void customize(TomcatServletWebServerFactory factory) {
-		Configurations configurations = xmlReader.loadConfigFile();
-		Map<Permission, Object> permissions = configurations.getConfigurations(Permission.SSL.getId());
-		SSLConfig sslConfig = (SSLConfig) permissions.get(Permission.SSL);
+		SSLConfig sslConfig = xmlReader.loadConfigFile().getConfiguration(Permission.SSL, SSLConfig.class);
         factory.setContextPath("");
         factory.setPort(sslConfig.getPort());
         factory.setSsl(getSSL());
@@ -42,12 +41,11 @@ public class ConfigSetter implements WebServerFactoryCustomizer<TomcatServletWeb
     }
 	
 	public Ssl getSSL() {
-		Configurations configurations = xmlReader.loadConfigFile();
-		Map<Permission, Object> permissions = configurations.getConfigurations(Permission.SSL.getId());
-		SSLConfig sslConfig = (SSLConfig) permissions.get(Permission.SSL);
+		SSLConfig sslConfig = xmlReader.loadConfigFile().getConfiguration(Permission.SSL, SSLConfig.class);
 		Ssl ssl = new Ssl();
+		// Spring's Ssl is enabled by default, follow config.xml
+		ssl.setEnabled(sslConfig.isEnable());
 		if (sslConfig.isEnable()) {
-			ssl.setEnabled(sslConfig.isEnable());
 			ssl.setKeyStore(sslConfig.getKeyStore());
 			ssl.setKeyStoreType(sslConfig.getKeyStoreType());
 			ssl.setKeyStorePassword(sslConfig.getKeyStorePassword());
@@ -59,24 +57,34 @@ public class ConfigSetter implements WebServerFactoryCustomizer<TomcatServletWeb
 	}
 
 	@Bean
-	public DataSource getDataSource() {
-		Configurations configurations = xmlReader.loadConfigFile();
-		Map<Permission, Object> permissions = configurations.getConfigurations(Permission.DB.getId());
-		DBConfig dbConfig = (DBConfig) permissions.get(Permission.DB);
-		DataSourceBuilder<?> dataSourceBuilder = DataSourceBuilder.create();
-		dataSourceBuilder.driverClassName("com.mysql.cj.jdbc.Driver");
-		dataSourceBuilder
-				.url("jdbc:mysql://" + dbConfig.getIp() + ":" + dbConfig.getPort() + "/" + dbConfig.getDatabase());
-		dataSourceBuilder.username(dbConfig.getUser());
-		dataSourceBuilder.password(dbConfig.getPassword());
-		return dataSourceBuilder.build();
+	public DataSource getDataSource(MeterRegistry meterRegistry) {
+		DBConfig dbConfig = xmlReader.loadConfigFile().getConfiguration(Permission.DB, DBConfig.class);
+		// url and driverClassName override the MySQL defaults, e.g. for an embedded database
+		String driverClassName = dbConfig.getDriverClassName() != null ? dbConfig.getDriverClassName()
+				: "com.mysql.cj.jdbc.Driver";
+		DataSource primary = DataSourcePool.create(dbConfig, "primary", driverClassName,
+				getUrl(dbConfig.getUrl(), dbConfig.getIp(), dbConfig.getPort(), dbConfig.getDatabase()), meterRegistry);
+		List<DataSource> replicas = new ArrayList<>();
+		for (ReplicaConfig replicaConfig : dbConfig.getReplicas()) {
+			replicas.add(DataSourcePool.create(dbConfig, "replica-" + replicas.size(), driverClassName,
+					getUrl(replicaConfig.getUrl(), replicaConfig.getIp(), replicaConfig.getPort(),
+							dbConfig.getDatabase()),
+					meterRegistry));
+		}
+		return ReadWriteRoutingDataSource.create(primary, replicas);
+	}
+
+	private String getUrl(String url, String ip, int port, String database) {
+		return url != null ? url : "jdbc:mysql://" + ip + ":" + port + "/" + database;
 	}
 	
 	@Bean
 	public JavaMailSender getJavaMailSender() {
-		Configurations configurations = xmlReader.loadConfigFile();
-		Map<Permission, Object> permissions = configurations.getConfigurations(Permission.MAIL.getId());
-		MailConfig mailConfig = (MailConfig) permissions.get(Permission.MAIL);
+		return newJavaMailSender(xmlReader.loadConfigFile().getConfiguration(Permission.MAIL, MailConfig.class));
+	}
+	
+	// MailServiceImpl builds a new one on every config change instead of changing the one sends are using
+	public static JavaMailSenderImpl newJavaMailSender(MailConfig mailConfig) {
 	    JavaMailSenderImpl mailSender = new JavaMailSenderImpl();
 	    mailSender.setHost(mailConfig.getHost());
 	    mailSender.setPort(mailConfig.getPort());
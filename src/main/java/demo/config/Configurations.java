@@ -1,72 +1,81 @@
 package demo.config;
 
-import java.util.List;
+import java.util.Collections;
+import java.util.EnumMap;
 import java.util.Map;
-import java.util.TreeMap;
 
-import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
+import javax.xml.bind.annotation.XmlTransient;
 
-import lombok.AllArgsConstructor;
 import lombok.NoArgsConstructor;
 import lombok.ToString;
 
-@AllArgsConstructor
+/**
+ * One parse of config.xml. Shared by every thread until the next reload
+ * replaces it as a whole, so neither this nor the section classes have
+ * setters: JAXB fills the fields directly.
+ */
 @NoArgsConstructor
 @ToString
 @XmlRootElement(name = "configurations")
+@XmlAccessorType(XmlAccessType.FIELD)
 public class Configurations {
 	private DBConfig db;
 	private GeneralConfig general;
 	private MailConfig mail;
 	private PasswordConfig password;
 	private SSLConfig ssl; 
+	private CacheConfig cache;
+	private RateLimitConfig rateLimit;
+	@XmlTransient
+	@ToString.Exclude
+	private Map<Permission, Object> sections = Collections.emptyMap();
 	
-	@XmlElement(name = "db")
-	public void setdB(DBConfig db) {
-		this.db = db;
-	}
-	@XmlElement(name = "general")
-	public void setGeneral(GeneralConfig general) {
-		this.general = general;
-	}
-	@XmlElement(name = "mail")
-	public void setMail(MailConfig mail) {
-		this.mail = mail;
-	}
-	@XmlElement(name = "password")
-	public void setPassword(PasswordConfig password) {
-		this.password = password;
-	}
-	@XmlElement(name = "ssl")
-	public void setSSL(SSLConfig ssl) {
-		this.ssl = ssl;
-	}
-	
-	public Map<Permission, Object> getConfigurations(long permission) {
-		Map<Permission, Object> configurations = new TreeMap<>();
-		List<Permission> permissions = Permission.getPermissions(permission);
-		for (Permission p : permissions) {
+	// Called by JAXB once the whole file was read, the sections never change afterwards
+	void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+		Map<Permission, Object> sections = new EnumMap<>(Permission.class);
+		for (Permission p : Permission.values()) {
 			switch (p) {
 			case DB:
-				configurations.put(p, this.db);
+				sections.put(p, this.db);
 				break;
 			case GENERAL:
-				configurations.put(p, this.general);
+				sections.put(p, this.general);
 				break;
 			case MAIL:
-				configurations.put(p, this.mail);
+				sections.put(p, this.mail);
 				break;
 			case PASSWORD:
-				configurations.put(p, this.password);
+				sections.put(p, this.password);
 				break;
 			case SSL:
-				configurations.put(p, this.ssl);
+				sections.put(p, this.ssl);
+				break;
+			case CACHE:
+				sections.put(p, this.cache);
+				break;
+			case RATE_LIMIT:
+				sections.put(p, this.rateLimit);
 				break;
 			default:
 				break;
 			}
 		}
-		return configurations;
+		this.sections = Collections.unmodifiableMap(sections);
+	}
+	
+	public <T> T getConfiguration(Permission permission, Class<T> type) {
+		return type.cast(this.sections.get(permission));
+	}
+	
+	public Map<Permission, Object> getConfigurations(long permission) {
+		Map<Permission, Object> configurations = new EnumMap<>(Permission.class);
+		for (Permission p : Permission.getPermissions(permission)) {
+			configurations.put(p, this.sections.get(p));
+		}
+		return Collections.unmodifiableMap(configurations);
 	}
 }
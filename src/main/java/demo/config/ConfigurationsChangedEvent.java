@@ -0,0 +1,21 @@
+package demo.config;
+
+import org.springframework.context.ApplicationEvent;
+
+import lombok.Getter;
+
+@Getter
+public class ConfigurationsChangedEvent extends ApplicationEvent {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+	private final transient Configurations configurations;
+
+	public ConfigurationsChangedEvent(Object source, Configurations configurations) {
+		super(source);
+		this.configurations = configurations;
+	}
+
+}
@@ -1,19 +1,27 @@
 package demo.config;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import javax.xml.bind.Unmarshaller;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlElementWrapper;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
-import lombok.Setter;
 import lombok.ToString;
 
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
-@Setter
 @ToString
+@XmlAccessorType(XmlAccessType.FIELD)
 public class DBConfig {
 	private String ip;
 	@Min(0)
@@ -22,4 +30,36 @@ public class DBConfig {
 	private String user;
 	private String password;
 	private String database;
+	private String url;
+	private String driverClassName;
+	private String r2dbcUrl;
+	private int maximumPoolSize;
+	private int minimumIdle;
+	private long connectionTimeout;
+	private long idleTimeout;
+	private long maxLifetime;
+	private long validationTimeout;
+	private long leakDetectionThreshold;
+	private boolean preWarm;
+	private boolean cachePrepStmts;
+	private int prepStmtCacheSize;
+	private int prepStmtCacheSqlLimit;
+	private boolean useServerPrepStmts;
+	private boolean rewriteBatchedStatements;
+	private boolean useLocalSessionState;
+	private boolean cacheServerConfiguration;
+	private boolean elideSetAutoCommits;
+	private boolean useCursorFetch;
+	private int fetchSize;
+	private int maxConcurrentExports;
+	private String driverProperties;
+	@XmlElementWrapper(name = "replicas")
+	@XmlElement(name = "replica")
+	private List<ReplicaConfig> replicas = new ArrayList<>();
+	private long readYourWritesWindow;
+
+	// Called by JAXB, the snapshot is shared by every thread and must not change
+	void afterUnmarshal(Unmarshaller unmarshaller, Object parent) {
+		this.replicas = Collections.unmodifiableList(new ArrayList<>(this.replicas));
+	}
 }
@@ -0,0 +1,165 @@
+package demo.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationStartedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+
+import demo.logic.utilities.XMLReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Tuning of the Hikari pools built by {@link ConfigSetter}.
+ *
+ * The pools are filled before the application reports ready, so the first
+ * requests do not pay for opening connections. Sizes and timeouts follow
+ * config.xml changes at runtime; driver options only apply to new pools.
+ * Every pool, the primary and each replica, publishes the hikaricp.connections
+ * metrics tagged with its pool name.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class DataSourcePool {
+	private static final int DEFAULT_MAXIMUM_POOL_SIZE = 10;
+	private static final int DEFAULT_PREP_STMT_CACHE_SIZE = 250;
+	private static final int DEFAULT_PREP_STMT_CACHE_SQL_LIMIT = 2048;
+	private @NonNull DataSource dataSource;
+	private @NonNull XMLReader xmlReader;
+
+	static HikariDataSource create(DBConfig dbConfig, String poolName, String driverClassName, String url,
+			MeterRegistry meterRegistry) {
+		HikariDataSource dataSource = new HikariDataSource();
+		dataSource.setPoolName(poolName);
+		dataSource.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+		dataSource.setDriverClassName(driverClassName);
+		dataSource.setJdbcUrl(url);
+		dataSource.setUsername(dbConfig.getUser());
+		dataSource.setPassword(dbConfig.getPassword());
+		dataSource.setDataSourceProperties(getDriverProperties(dbConfig, url));
+		applyPoolSettings(dataSource, dbConfig);
+		return dataSource;
+	}
+
+	@EventListener(ApplicationStartedEvent.class)
+	private void preWarm() {
+		if (!getDBConfig().isPreWarm()) {
+			return;
+		}
+		for (HikariDataSource hikariDataSource : getPools()) {
+			preWarm(hikariDataSource);
+		}
+	}
+
+	private void preWarm(HikariDataSource hikariDataSource) {
+		// Holding the connections makes the pool open new ones instead of handing out the same one again
+		List<Connection> connections = new ArrayList<>();
+		try {
+			for (int i = 0; i < hikariDataSource.getMinimumIdle(); i++) {
+				connections.add(hikariDataSource.getConnection());
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		} finally {
+			for (Connection connection : connections) {
+				try {
+					connection.close();
+				} catch (SQLException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	@EventListener(ConfigurationsChangedEvent.class)
+	private void onConfigurationsChanged(ConfigurationsChangedEvent event) {
+		DBConfig dbConfig = event.getConfigurations().getConfiguration(Permission.DB, DBConfig.class);
+		for (HikariDataSource hikariDataSource : getPools()) {
+			applyPoolSettings(hikariDataSource, dbConfig);
+		}
+	}
+
+	private static void applyPoolSettings(HikariDataSource dataSource, DBConfig dbConfig) {
+		int maximumPoolSize = dbConfig.getMaximumPoolSize() > 0 ? dbConfig.getMaximumPoolSize()
+				: DEFAULT_MAXIMUM_POOL_SIZE;
+		dataSource.setMaximumPoolSize(maximumPoolSize);
+		dataSource.setMinimumIdle(dbConfig.getMinimumIdle() > 0 ? Math.min(dbConfig.getMinimumIdle(), maximumPoolSize)
+				: maximumPoolSize);
+		if (dbConfig.getConnectionTimeout() > 0) {
+			dataSource.setConnectionTimeout(dbConfig.getConnectionTimeout());
+		}
+		if (dbConfig.getIdleTimeout() > 0) {
+			dataSource.setIdleTimeout(dbConfig.getIdleTimeout());
+		}
+		if (dbConfig.getMaxLifetime() > 0) {
+			dataSource.setMaxLifetime(dbConfig.getMaxLifetime());
+		}
+		if (dbConfig.getValidationTimeout() > 0) {
+			dataSource.setValidationTimeout(dbConfig.getValidationTimeout());
+		}
+		dataSource.setLeakDetectionThreshold(Math.max(dbConfig.getLeakDetectionThreshold(), 0));
+	}
+
+	private static Properties getDriverProperties(DBConfig dbConfig, String url) {
+		Properties properties = new Properties();
+		if (url.startsWith("jdbc:mysql:")) {
+			properties.setProperty("cachePrepStmts", String.valueOf(dbConfig.isCachePrepStmts()));
+			properties.setProperty("prepStmtCacheSize", String.valueOf(
+					dbConfig.getPrepStmtCacheSize() > 0 ? dbConfig.getPrepStmtCacheSize() : DEFAULT_PREP_STMT_CACHE_SIZE));
+			properties.setProperty("prepStmtCacheSqlLimit", String.valueOf(dbConfig.getPrepStmtCacheSqlLimit() > 0
+					? dbConfig.getPrepStmtCacheSqlLimit()
+					: DEFAULT_PREP_STMT_CACHE_SQL_LIMIT));
+			properties.setProperty("useServerPrepStmts", String.valueOf(dbConfig.isUseServerPrepStmts()));
+			properties.setProperty("rewriteBatchedStatements", String.valueOf(dbConfig.isRewriteBatchedStatements()));
+			properties.setProperty("useLocalSessionState", String.valueOf(dbConfig.isUseLocalSessionState()));
+			properties.setProperty("cacheServerConfiguration", String.valueOf(dbConfig.isCacheServerConfiguration()));
+			properties.setProperty("elideSetAutoCommits", String.valueOf(dbConfig.isElideSetAutoCommits()));
+			properties.setProperty("useCursorFetch", String.valueOf(dbConfig.isUseCursorFetch()));
+		}
+		if (dbConfig.getDriverProperties() != null) {
+			for (String property : dbConfig.getDriverProperties().split(";")) {
+				int separator = property.indexOf('=');
+				if (separator > 0) {
+					properties.setProperty(property.substring(0, separator).trim(),
+							property.substring(separator + 1).trim());
+				}
+			}
+		}
+		return properties;
+	}
+
+	private List<HikariDataSource> getPools() {
+		List<HikariDataSource> pools = new ArrayList<>();
+		try {
+			List<DataSource> dataSources = this.dataSource.isWrapperFor(ReadWriteRoutingDataSource.class)
+					? this.dataSource.unwrap(ReadWriteRoutingDataSource.class).getDataSources()
+					: Collections.singletonList(this.dataSource);
+			for (DataSource current : dataSources) {
+				if (current.isWrapperFor(HikariDataSource.class)) {
+					pools.add(current.unwrap(HikariDataSource.class));
+				}
+			}
+		} catch (SQLException e) {
+			e.printStackTrace();
+		}
+		return pools;
+	}
+
+	private DBConfig getDBConfig() {
+		return this.xmlReader.loadConfigFile().getConfiguration(Permission.DB, DBConfig.class);
+	}
+
+}
@@ -1,16 +1,22 @@
 package demo.config;
 
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
-import lombok.Setter;
 import lombok.ToString;
 
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
-@Setter
 @ToString
+@XmlAccessorType(XmlAccessType.FIELD)
 public class GeneralConfig {
 	private boolean secure;
+	private int bulkChunkSize;
+	private boolean serverTiming;
+	private double timingLogSampleRate;
+	private boolean virtualThreads;
 }
@@ -2,18 +2,19 @@ package demo.config;
 
 import javax.validation.constraints.Max;
 import javax.validation.constraints.Min;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
 
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
-import lombok.Setter;
 import lombok.ToString;
 
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
-@Setter
 @ToString
+@XmlAccessorType(XmlAccessType.FIELD)
 public class MailConfig {
 	private String host;
 	@Min(0)
@@ -23,4 +24,10 @@ public class MailConfig {
 	private String password;
 	private String from;
 	private String resetPasswordHTMLTemplateFile;
+	private int outboxWorkers;
+	private long outboxPollInterval;
+	private int outboxBatchSize;
+	private int outboxMaxAttempts;
+	private long outboxRetryBackoff;
+	private String outboxKey;
 }
@@ -1,20 +1,34 @@
 package demo.config;
 
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
 import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
-import lombok.Setter;
 import lombok.ToString;
 
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
-@Setter
 @ToString
+@XmlAccessorType(XmlAccessType.FIELD)
 public class PasswordConfig {
 	private int length;
 	private String symbols;
 	private int history;
 	private String dictionaryFile;
+	private int dictionaryReloadInterval;
 	private int loginAttempts;
+	private long loginAttemptWindow;
+	private long loginAttemptFlushInterval;
+	private int hashingThreads;
+	private int bulkHashingThreads;
+	private int hashingQueueCapacity;
+	private long hashingRetryAfter;
+	private long hashingWaitTimeout;
+	private String hashAlgorithm;
+	private int hashIterations;
+	private long hashTargetTime;
+	private int hashRehashTolerance;
 }
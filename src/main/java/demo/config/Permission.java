@@ -4,7 +4,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 public enum Permission {
-	DB(1 << 1), GENERAL(1 << 2), MAIL(1 << 3), PASSWORD(1 << 4), SSL(1 << 5);
+	DB(1 << 1), GENERAL(1 << 2), MAIL(1 << 3), PASSWORD(1 << 4), SSL(1 << 5), CACHE(1 << 6), RATE_LIMIT(1 << 7);
 	
 	private long id;
 	
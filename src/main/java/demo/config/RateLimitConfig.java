@@ -0,0 +1,25 @@
+package demo.config;
+
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@ToString
+@XmlAccessorType(XmlAccessType.FIELD)
+public class RateLimitConfig {
+	private boolean enable;
+	private int ipBurst;
+	private int ipRatePerMinute;
+	private int usernameBurst;
+	private int usernameRatePerMinute;
+	private int accountBurst;
+	private int accountRatePerMinute;
+	private int maxTrackedKeys;
+}
@@ -0,0 +1,90 @@
+package demo.config;
+
+import java.time.Duration;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.boot.web.server.WebServerFactoryCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import demo.logic.utilities.XMLReader;
+import io.r2dbc.pool.ConnectionPool;
+import io.r2dbc.pool.ConnectionPoolConfiguration;
+import io.r2dbc.spi.ConnectionFactories;
+import io.r2dbc.spi.ConnectionFactoryOptions;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Netty and the R2DBC connection pool for the reactive variant of the client
+ * API, started with spring.main.web-application-type=reactive. Uses the same
+ * ssl section and db credentials as the servlet stack, the connections go to
+ * the primary only.
+ *
+ * Only the client endpoints move to R2DBC. JPA, the Hikari pools and the
+ * blocking services such as the mail outbox are still created in this mode
+ * and keep their own connections next to this pool.
+ */
+@Configuration
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ReactiveConfig implements WebServerFactoryCustomizer<NettyReactiveWebServerFactory> {
+	private static final int DEFAULT_MAXIMUM_POOL_SIZE = 10;
+	private @NonNull XMLReader xmlReader;
+	private @NonNull ConfigSetter configSetter;
+
+	@Override
+	public void customize(NettyReactiveWebServerFactory factory) {
+		SSLConfig sslConfig = xmlReader.loadConfigFile().getConfiguration(Permission.SSL, SSLConfig.class);
+		factory.setPort(sslConfig.getPort());
+		factory.setSsl(this.configSetter.getSSL());
+		factory.setHttp2(this.configSetter.getHttp2());
+	}
+
+	// Declared here because Spring Boot picks Tomcat over Netty when both are on the classpath, as they are
+	// with the servlet stack next to WebFlux
+	@Bean
+	public NettyReactiveWebServerFactory getReactiveWebServerFactory() {
+		return new NettyReactiveWebServerFactory();
+	}
+
+	@Bean(destroyMethod = "dispose")
+	public ConnectionPool getConnectionPool() {
+		DBConfig dbConfig = xmlReader.loadConfigFile().getConfiguration(Permission.DB, DBConfig.class);
+		// r2dbcUrl overrides the MySQL default, e.g. for an embedded database
+		String url = dbConfig.getR2dbcUrl() != null ? dbConfig.getR2dbcUrl()
+				: "r2dbc:mysql://" + dbConfig.getIp() + ":" + dbConfig.getPort() + "/" + dbConfig.getDatabase();
+		ConnectionFactoryOptions.Builder options = ConnectionFactoryOptions.parse(url).mutate();
+		if (dbConfig.getUser() != null) {
+			options.option(ConnectionFactoryOptions.USER, dbConfig.getUser());
+		}
+		if (dbConfig.getPassword() != null) {
+			options.option(ConnectionFactoryOptions.PASSWORD, dbConfig.getPassword());
+		}
+		int maximumPoolSize = dbConfig.getMaximumPoolSize() > 0 ? dbConfig.getMaximumPoolSize()
+				: DEFAULT_MAXIMUM_POOL_SIZE;
+		ConnectionPoolConfiguration.Builder configuration = ConnectionPoolConfiguration
+				.builder(ConnectionFactories.get(options.build())).name("r2dbc-primary").maxSize(maximumPoolSize)
+				.initialSize(Math.min(Math.max(dbConfig.getMinimumIdle(), 0), maximumPoolSize));
+		if (dbConfig.getConnectionTimeout() > 0) {
+			configuration.maxAcquireTime(Duration.ofMillis(dbConfig.getConnectionTimeout()));
+		}
+		if (dbConfig.getIdleTimeout() > 0) {
+			configuration.maxIdleTime(Duration.ofMillis(dbConfig.getIdleTimeout()));
+		}
+		if (dbConfig.getMaxLifetime() > 0) {
+			configuration.maxLifeTime(Duration.ofMillis(dbConfig.getMaxLifetime()));
+		}
+		return new ConnectionPool(configuration.build());
+	}
+
+	@Bean
+	public DatabaseClient getDatabaseClient(ConnectionPool connectionPool) {
+		return DatabaseClient.create(connectionPool);
+	}
+
+}
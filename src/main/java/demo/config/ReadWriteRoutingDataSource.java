@@ -0,0 +1,65 @@
+package demo.config;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Sends read-only transactions to the replicas, round robin, and everything
+ * else to the primary.
+ *
+ * Must be used through {@link #create(DataSource, List)}: the transaction
+ * manager takes the connection before the transaction is marked read-only, so
+ * the lazy proxy delays the routing until the first statement runs.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+	private static final String PRIMARY = "primary";
+	private final DataSource primary;
+	private final List<DataSource> replicas;
+	private final AtomicInteger next = new AtomicInteger();
+
+	private ReadWriteRoutingDataSource(DataSource primary, List<DataSource> replicas) {
+		this.primary = primary;
+		this.replicas = Collections.unmodifiableList(new ArrayList<>(replicas));
+		Map<Object, Object> targets = new HashMap<>();
+		targets.put(PRIMARY, primary);
+		for (int i = 0; i < replicas.size(); i++) {
+			targets.put(i, replicas.get(i));
+		}
+		setTargetDataSources(targets);
+		setDefaultTargetDataSource(primary);
+		afterPropertiesSet();
+	}
+
+	public static DataSource create(DataSource primary, List<DataSource> replicas) {
+		if (replicas.isEmpty()) {
+			return primary;
+		}
+		return new LazyConnectionDataSourceProxy(new ReadWriteRoutingDataSource(primary, replicas));
+	}
+
+	public List<DataSource> getDataSources() {
+		List<DataSource> dataSources = new ArrayList<>(this.replicas.size() + 1);
+		dataSources.add(this.primary);
+		dataSources.addAll(this.replicas);
+		return dataSources;
+	}
+
+	@Override
+	protected Object determineCurrentLookupKey() {
+		if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+			return PRIMARY;
+		}
+		return Math.floorMod(this.next.getAndIncrement(), this.replicas.size());
+	}
+
+}
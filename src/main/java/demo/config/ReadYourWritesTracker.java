@@ -0,0 +1,51 @@
+package demo.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import demo.logic.utilities.XMLReader;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Remembers the records written in the last readYourWritesWindow
+ * milliseconds, so that lookups of those records skip the replicas until they
+ * had time to catch up with the primary.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ReadYourWritesTracker {
+	private static final long DEFAULT_WINDOW_MILLIS = 2000;
+	private static final int PURGE_THRESHOLD = 10_000;
+	private @NonNull XMLReader xmlReader;
+	private final Map<String, Long> recentWrites = new ConcurrentHashMap<>();
+
+	public void recordWrite(String key) {
+		long now = System.currentTimeMillis();
+		this.recentWrites.put(key, now + getWindow());
+		if (this.recentWrites.size() > PURGE_THRESHOLD) {
+			this.recentWrites.values().removeIf(expiry -> expiry <= now);
+		}
+	}
+
+	public boolean isRecentlyWritten(String key) {
+		Long expiry = this.recentWrites.get(key);
+		if (expiry == null) {
+			return false;
+		}
+		if (expiry <= System.currentTimeMillis()) {
+			this.recentWrites.remove(key, expiry);
+			return false;
+		}
+		return true;
+	}
+
+	private long getWindow() {
+		DBConfig dbConfig = this.xmlReader.loadConfigFile().getConfiguration(Permission.DB, DBConfig.class);
+		return dbConfig.getReadYourWritesWindow() > 0 ? dbConfig.getReadYourWritesWindow() : DEFAULT_WINDOW_MILLIS;
+	}
+
+}
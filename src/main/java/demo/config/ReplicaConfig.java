@@ -0,0 +1,24 @@
+package demo.config;
+
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+import javax.xml.bind.annotation.XmlAccessType;
+import javax.xml.bind.annotation.XmlAccessorType;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@ToString
+@XmlAccessorType(XmlAccessType.FIELD)
+public class ReplicaConfig {
+	private String ip;
+	@Min(0)
+	@Max(65536)
+	private int port;
+	private String url;
+}
@@ -0,0 +1,68 @@
+package demo.config;
+
+import java.util.concurrent.ExecutorService;
+
+import org.apache.coyote.ProtocolHandler;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import demo.logic.utilities.XMLReader;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Runs the Tomcat request threads and the Spring MVC async work (exports and
+ * bulk reports) on virtual threads when general.virtualThreads is on and the
+ * JVM has them. Read once at startup.
+ *
+ * With a virtual thread per request Tomcat's maxThreads no longer applies,
+ * the number of requests in progress is bounded by its maxConnections and in
+ * practice by the database pool. PBKDF2 stays on the bounded
+ * PasswordHashingExecutor pool of platform threads, a virtual request thread
+ * waiting for it unmounts instead of holding a carrier.
+ */
+@Configuration
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class VirtualThreadConfig implements WebMvcConfigurer {
+	private static final Logger LOGGER = LoggerFactory.getLogger(VirtualThreadConfig.class);
+	private @NonNull XMLReader xmlReader;
+
+	@Bean
+	public TomcatProtocolHandlerCustomizer<ProtocolHandler> virtualThreadProtocolHandlerCustomizer() {
+		return protocolHandler -> {
+			ExecutorService executor = newExecutor("tomcat-handler-");
+			if (executor != null) {
+				protocolHandler.setExecutor(executor);
+			}
+		};
+	}
+
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		ExecutorService executor = newExecutor("mvc-async-");
+		if (executor != null) {
+			configurer.setTaskExecutor(new TaskExecutorAdapter(executor));
+		}
+	}
+
+	// null keeps the default platform thread pool
+	private ExecutorService newExecutor(String prefix) {
+		if (!this.xmlReader.loadConfigFile().getConfiguration(Permission.GENERAL, GeneralConfig.class)
+				.isVirtualThreads()) {
+			return null;
+		}
+		ExecutorService executor = VirtualThreads.newVirtualThreadPerTaskExecutor(prefix);
+		if (executor == null) {
+			LOGGER.warn("virtualThreads is on but this JVM has no virtual threads, using platform threads");
+		}
+		return executor;
+	}
+
+}
@@ -0,0 +1,90 @@
+package demo.config;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Virtual threads where the JVM has them, found by reflection so the code
+ * still compiles and runs on Java 8. Falls back to platform threads.
+ */
+public final class VirtualThreads {
+	private static final Method OF_VIRTUAL = findMethod(Thread.class, "ofVirtual");
+	private static final Method NAME = findMethod(builderType(), "name", String.class, long.class);
+	private static final Method FACTORY = findMethod(builderType(), "factory");
+	private static final Method NEW_THREAD_PER_TASK_EXECUTOR = findMethod(Executors.class, "newThreadPerTaskExecutor",
+			ThreadFactory.class);
+
+	private VirtualThreads() {
+	}
+
+	public static boolean isSupported() {
+		return newVirtualThreadFactory("virtual-thread-check-") != null;
+	}
+
+	/**
+	 * Threads named prefix1, prefix2 and so on. Virtual ones if asked for and
+	 * supported, daemon platform threads otherwise.
+	 */
+	public static ThreadFactory newThreadFactory(String prefix, boolean virtual) {
+		ThreadFactory threadFactory = virtual ? newVirtualThreadFactory(prefix) : null;
+		if (threadFactory != null) {
+			return threadFactory;
+		}
+		AtomicInteger threadNumber = new AtomicInteger();
+		return runnable -> {
+			Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		};
+	}
+
+	// One new virtual thread per task, null when the JVM has no virtual threads
+	public static ExecutorService newVirtualThreadPerTaskExecutor(String prefix) {
+		ThreadFactory threadFactory = newVirtualThreadFactory(prefix);
+		if (threadFactory == null || NEW_THREAD_PER_TASK_EXECUTOR == null) {
+			return null;
+		}
+		try {
+			return (ExecutorService) NEW_THREAD_PER_TASK_EXECUTOR.invoke(null, threadFactory);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	private static ThreadFactory newVirtualThreadFactory(String prefix) {
+		if (OF_VIRTUAL == null || NAME == null || FACTORY == null) {
+			return null;
+		}
+		try {
+			Object builder = OF_VIRTUAL.invoke(null);
+			builder = NAME.invoke(builder, prefix, 1L);
+			return (ThreadFactory) FACTORY.invoke(builder);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			// Preview releases throw unless started with --enable-preview
+			return null;
+		}
+	}
+
+	private static Class<?> builderType() {
+		try {
+			return Class.forName("java.lang.Thread$Builder");
+		} catch (ClassNotFoundException e) {
+			return null;
+		}
+	}
+
+	private static Method findMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+		if (type == null) {
+			return null;
+		}
+		try {
+			return type.getMethod(name, parameterTypes);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+}
@@ -0,0 +1,53 @@
+package demo.data;
+
+import java.util.Date;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+import lombok.ToString;
+
+@Entity
+@Table(name = "mail_outbox", indexes = @Index(columnList = "status, nextAttemptTimestamp"))
+@AllArgsConstructor
+@NoArgsConstructor
+@Getter
+@Setter
+@EqualsAndHashCode
+@Builder
+@ToString
+public class MailOutboxEntity {
+	@Id
+	@GeneratedValue(strategy = GenerationType.IDENTITY)
+	private Long id;
+	private String mailType;
+	private String recipient;
+	private String subject;
+	@ToString.Exclude
+	@Column(length = 1024)
+	private String content;
+	@Enumerated(EnumType.STRING)
+	private MailOutboxStatus status;
+	private int attempts;
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date nextAttemptTimestamp;
+	@Column(length = 1024)
+	private String lastError;
+	@Temporal(TemporalType.TIMESTAMP)
+	private Date creationTimestamp;
+}
@@ -0,0 +1,5 @@
+package demo.data;
+
+public enum MailOutboxStatus {
+	PENDING, SENDING, DEAD
+}
@@ -2,12 +2,18 @@ package demo.data;
 
 import java.util.Date;
 
+import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.Table;
 import javax.persistence.Temporal;
 import javax.persistence.TemporalType;
+import javax.persistence.Transient;
 
+import demo.logic.utilities.PasswordHash;
+import demo.logic.utilities.PasswordHistory;
+import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.EqualsAndHashCode;
@@ -17,7 +23,7 @@ import lombok.Setter;
 import lombok.ToString;
 
 @Entity
-@Table(name = "Users")
+@Table(name = "Users", indexes = @Index(columnList = "creationTimestamp"))
 @AllArgsConstructor
 @NoArgsConstructor
 @Getter
@@ -26,17 +32,86 @@ import lombok.ToString;
 @Builder
 @ToString
 public class UserEntity {
+	// Bits of the columns changed through the setters since the entity was built or loaded
+	public static final int DIRTY_PASSWORD = 1;
+	public static final int DIRTY_SALT = 1 << 1;
+	public static final int DIRTY_EMAIL = 1 << 2;
+	public static final int DIRTY_NUMBER_OF_LOGIN_ATTEMPT = 1 << 3;
+	public static final int DIRTY_OLD_PASSWORDS = 1 << 4;
+	public static final int DIRTY_PASSWORD_HISTORY = 1 << 5;
+	public static final int DIRTY_PASSWORD_HASH = 1 << 6;
+	public static final int DIRTY_PASSWORD_SALT = 1 << 7;
 	@Id
 	private String username;
+	// ISO-8859-1 strings of rows not moved to passwordHash and passwordSalt yet
 	private String password;
 	private String salt;
+	@Column(columnDefinition = "BINARY(" + PasswordHash.STORED_LENGTH + ")")
+	@ToString.Exclude
+	private byte[] passwordHash;
+	@Column(columnDefinition = "BINARY(16)")
+	@ToString.Exclude
+	private byte[] passwordSalt;
 	private String email;
 	private int numberOfLoginAttempt;
 	@Temporal(TemporalType.TIMESTAMP)
 	private Date creationTimestamp;
+	// Gson list of the last passwords, replaced by passwordHistory when the row is next written
 	private String oldPasswords;
+	@Column(length = PasswordHistory.MAX_LENGTH)
+	@ToString.Exclude
+	private byte[] passwordHistory;
+	@Transient
+	@EqualsAndHashCode.Exclude
+	@ToString.Exclude
+	@Setter(AccessLevel.NONE)
+	private int dirtyFields;
 //	@ElementCollection
 //	@CollectionTable(name = "old_passwords", joinColumns = @JoinColumn(referencedColumnName = "username"))
 //	@Column(name = "oldPasswords")
 //	private List<String> oldPasswords;
+
+	public void setPassword(String password) {
+		this.password = password;
+		this.dirtyFields |= DIRTY_PASSWORD;
+	}
+
+	public void setSalt(String salt) {
+		this.salt = salt;
+		this.dirtyFields |= DIRTY_SALT;
+	}
+
+	public void setEmail(String email) {
+		this.email = email;
+		this.dirtyFields |= DIRTY_EMAIL;
+	}
+
+	public void setNumberOfLoginAttempt(int numberOfLoginAttempt) {
+		this.numberOfLoginAttempt = numberOfLoginAttempt;
+		this.dirtyFields |= DIRTY_NUMBER_OF_LOGIN_ATTEMPT;
+	}
+
+	public void setOldPasswords(String oldPasswords) {
+		this.oldPasswords = oldPasswords;
+		this.dirtyFields |= DIRTY_OLD_PASSWORDS;
+	}
+
+	public void setPasswordHistory(byte[] passwordHistory) {
+		this.passwordHistory = passwordHistory;
+		this.dirtyFields |= DIRTY_PASSWORD_HISTORY;
+	}
+
+	public void setPasswordHash(byte[] passwordHash) {
+		this.passwordHash = passwordHash;
+		this.dirtyFields |= DIRTY_PASSWORD_HASH;
+	}
+
+	public void setPasswordSalt(byte[] passwordSalt) {
+		this.passwordSalt = passwordSalt;
+		this.dirtyFields |= DIRTY_PASSWORD_SALT;
+	}
+
+	public void clearDirtyFields() {
+		this.dirtyFields = 0;
+	}
 }
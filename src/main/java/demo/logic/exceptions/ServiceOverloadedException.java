@@ -0,0 +1,23 @@
+package demo.logic.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class ServiceOverloadedException extends RuntimeException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+	private final long retryAfterSeconds;
+
+	public ServiceOverloadedException(long retryAfterSeconds) {
+		this("Server is busy, please try again later", retryAfterSeconds);
+	}
+
+	public ServiceOverloadedException(String message, long retryAfterSeconds) {
+		super(message);
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+}
@@ -0,0 +1,19 @@
+package demo.logic.exceptions;
+
+import lombok.Getter;
+
+@Getter
+public class TooManyRequestsException extends RuntimeException {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+	private final long retryAfterSeconds;
+
+	public TooManyRequestsException(long retryAfterSeconds) {
+		super("Too many attempts, please try again later");
+		this.retryAfterSeconds = retryAfterSeconds;
+	}
+
+}
@@ -0,0 +1,75 @@
+package demo.logic.service;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import demo.boundary.ClientBoundaryBase;
+import demo.boundary.PageBoundary;
+import demo.logic.exceptions.InvalidInputDataException;
+import demo.logic.utilities.PageCursor;
+
+/**
+ * Keyset pagination of clients by (client_name, id). client_name is not
+ * unique, the id breaks the ties so no row is skipped or repeated between
+ * pages. It may also be NULL: NULLs sort first, as in MySQL and H2, so a page
+ * ending on a NULL name continues with the remaining NULL names by id and then
+ * every named client.
+ */
+final class ClientKeyset {
+	private static final String SELECT = "SELECT client_name, id FROM clients";
+	private static final String ORDER = " ORDER BY client_name, id";
+	private final String sql;
+	private final Map<String, Object> parameters;
+
+	private ClientKeyset(String sql, Map<String, Object> parameters) {
+		this.sql = sql;
+		this.parameters = parameters;
+	}
+
+	// null for the first page
+	static ClientKeyset after(String cursor) {
+		if (cursor == null) {
+			return new ClientKeyset(SELECT + ORDER, Collections.emptyMap());
+		}
+		String[] after = PageCursor.decode(cursor, 2);
+		if (after[1] == null) {
+			throw new InvalidInputDataException("Invalid cursor");
+		}
+		Map<String, Object> parameters = new LinkedHashMap<>();
+		if (after[0] == null) {
+			parameters.put("id", after[1]);
+			return new ClientKeyset(SELECT + " WHERE (client_name IS NULL AND id > :id) OR client_name IS NOT NULL"
+					+ ORDER, parameters);
+		}
+		parameters.put("client_name", after[0]);
+		parameters.put("id", after[1]);
+		return new ClientKeyset(
+				SELECT + " WHERE client_name > :client_name OR (client_name = :client_name AND id > :id)" + ORDER,
+				parameters);
+	}
+
+	// Selects client_name and id, the caller limits it to one row more than the page
+	String getSql() {
+		return this.sql;
+	}
+
+	Map<String, Object> getParameters() {
+		return this.parameters;
+	}
+
+	// rows are {client_name, id}
+	static PageBoundary<ClientBoundaryBase> toPage(List<String[]> rows, int size) {
+		boolean hasNext = rows.size() > size;
+		List<ClientBoundaryBase> items = rows.stream().limit(size).map(row -> new ClientBoundaryBase(row[0]))
+				.collect(Collectors.toList());
+		if (!hasNext) {
+			return new PageBoundary<>(items, null);
+		}
+		String[] last = rows.get(size - 1);
+		return new PageBoundary<>(items, PageCursor.encode(last[0], last[1]));
+	}
+
+}
@@ -1,7 +1,16 @@
 package demo.logic.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import javax.persistence.EntityManager;
@@ -11,24 +20,39 @@ import javax.persistence.Query;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort.Direction;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.support.TransactionTemplate;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.boundary.BulkRowStatus;
 import demo.boundary.ClientBoundaryAddNewClient;
 import demo.boundary.ClientBoundaryBase;
+import demo.boundary.PageBoundary;
 import demo.config.Configurations;
+import demo.config.ConfigurationsChangedEvent;
 import demo.config.GeneralConfig;
 import demo.config.Permission;
+import demo.config.ReadYourWritesTracker;
 import demo.data.ClientEntity;
 import demo.data.repository.ClientRepository;
 import demo.logic.exceptions.InternalErrorException;
 import demo.logic.exceptions.InvalidInputDataException;
 import demo.logic.exceptions.InvalidUsernameOrPasswordException;
 import demo.logic.service.interfaces.ClientService;
+import demo.logic.utilities.BulkInserter;
+import demo.logic.utilities.BulkReportWriter;
+import demo.logic.utilities.ExportFormat;
+import demo.logic.utilities.JsonRowReader;
+import demo.logic.utilities.PageCursor;
+import demo.logic.utilities.PerformanceMonitor;
+import demo.logic.utilities.PerformanceMonitor.Phase;
+import demo.logic.utilities.TableExporter;
 import demo.logic.utilities.XMLReader;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -38,16 +62,36 @@ import lombok.RequiredArgsConstructor;
 public class ClientServiceImpl implements ClientService {
 	private @NonNull XMLReader xmlReader;
 	private final long PERMISSIONS_VALUE = Permission.GENERAL.getId();
+	private final String WRITE_KEY_PREFIX = "clients:";
+	// Always bound as parameters, the bulk path has no insecure variant
+	private final String INSERT_CLIENT_SQL = "INSERT INTO clients (id, client_name, creation_timestamp, last_name, phone_number)"
+			+ " VALUES(?, ?, ?, ?, ?)";
 	private @NonNull ClientRepository clientRepository;
 	@PersistenceContext
 	private @NonNull EntityManager entityManager;
-	private GeneralConfig generalConfig;
+	private volatile GeneralConfig generalConfig;
+	private BulkInserter<ClientEntity> bulkInserter;
 	private @NonNull PlatformTransactionManager transactionManager;
 	private @NonNull TransactionTemplate transactionTemplate;
+	private @NonNull ReadYourWritesTracker readYourWritesTracker;
+	private @NonNull TableExporter tableExporter;
+	private @NonNull JdbcTemplate jdbcTemplate;
+	private @NonNull ObjectMapper objectMapper;
+	private @NonNull PerformanceMonitor performanceMonitor;
 
 	@EventListener(ApplicationReadyEvent.class)
 	private void init() {
-		Configurations configurations = xmlReader.loadConfigFile();
+		this.setGeneralConfig(xmlReader.loadConfigFile());
+		this.bulkInserter = new BulkInserter<>(this.jdbcTemplate, this.transactionManager, this.performanceMonitor,
+				"clients", "id", INSERT_CLIENT_SQL, this::setClientParameters);
+	}
+
+	@EventListener(ConfigurationsChangedEvent.class)
+	private void onConfigurationsChanged(ConfigurationsChangedEvent event) {
+		this.setGeneralConfig(event.getConfigurations());
+	}
+
+	private void setGeneralConfig(Configurations configurations) {
 		Map<Permission, Object> permissions = configurations.getConfigurations(PERMISSIONS_VALUE);
 		this.generalConfig = (GeneralConfig) permissions.get(Permission.GENERAL);
 	}
@@ -80,17 +124,23 @@ public class ClientServiceImpl implements ClientService {
 
 	private ClientEntity findByClientId(String id) {
 		try {
-			String sqlQueryAsString;
-			Query query;
-//			if (this.generalConfig.isSecure()) {
-				sqlQueryAsString = "SELECT * FROM clients WHERE id = :id";
-				query = this.entityManager.createNativeQuery(sqlQueryAsString, ClientEntity.class).setParameter("id",
-						id);
-//			} else {
-//				sqlQueryAsString = "SELECT * FROM clients WHERE id = '" + id + "'";
-//				query = this.entityManager.createNativeQuery(sqlQueryAsString, ClientEntity.class);
-//			}
-			return (ClientEntity) query.getResultList().get(0);
+			// Read-only so a replica can serve it, unless the client was written too recently for the replicas to have it
+			TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+			transactionTemplate.setReadOnly(!this.readYourWritesTracker.isRecentlyWritten(WRITE_KEY_PREFIX + id));
+			return transactionTemplate.execute(transactionStatus -> {
+				String sqlQueryAsString;
+				Query query;
+//				if (this.generalConfig.isSecure()) {
+					sqlQueryAsString = "SELECT * FROM clients WHERE id = :id";
+					query = this.entityManager.createNativeQuery(sqlQueryAsString, ClientEntity.class).setParameter("id",
+							id);
+//				} else {
+//					sqlQueryAsString = "SELECT * FROM clients WHERE id = '" + id + "'";
+//					query = this.entityManager.createNativeQuery(sqlQueryAsString, ClientEntity.class);
+//				}
+				return this.performanceMonitor.record(Phase.QUERY, "clients.select",
+						() -> (ClientEntity) query.getResultList().get(0));
+			});
 		} catch (Exception ex) {
 			throw new InvalidInputDataException();
 		}
@@ -100,7 +150,8 @@ public class ClientServiceImpl implements ClientService {
 	private void saveClient(ClientEntity clientEntity) {
 		try {
 			this.transactionTemplate = new TransactionTemplate(this.transactionManager);
-			this.transactionTemplate.execute(transactionStatus -> {
+			this.performanceMonitor.record(Phase.TRANSACTION, "saveClient",
+					() -> this.transactionTemplate.execute(transactionStatus -> {
 				String sqlQueryAsString;
 				Query query;
 				if (this.generalConfig.isSecure()) {
@@ -123,10 +174,11 @@ public class ClientServiceImpl implements ClientService {
 							+ clientEntity.getPhoneNumber() + "' WHERE id = '" + clientEntity.getId() + "'";
 					query = this.entityManager.createNativeQuery(sqlQueryAsString, ClientEntity.class);
 				}
-				query.executeUpdate();
+				this.performanceMonitor.record(Phase.QUERY, "clients.insert", query::executeUpdate);
 				transactionStatus.flush();
 				return null;
-			});
+			}));
+			this.readYourWritesTracker.recordWrite(WRITE_KEY_PREFIX + clientEntity.getId());
 		} catch (Exception e) {
 			e.printStackTrace();
 			throw new InternalErrorException("Something went wrong");
@@ -134,10 +186,130 @@ public class ClientServiceImpl implements ClientService {
 	}
 
 	@Override
-	public ClientBoundaryBase[] getAll() {
-		return clientRepository.findAll(PageRequest.of(0, 10, Direction.ASC, "clientName")).getContent().stream()
-				.map(entity -> new ClientBoundaryBase(entity.getClientName())).collect(Collectors.toList())
-				.toArray(new ClientBoundaryBase[0]);
+	public void addClients(InputStream inputStream, OutputStream outputStream) throws IOException {
+		int chunkSize = this.generalConfig.getBulkChunkSize() > 0 ? this.generalConfig.getBulkChunkSize()
+				: BulkInserter.DEFAULT_CHUNK_SIZE;
+		JsonRowReader rowReader = new JsonRowReader(this.objectMapper, inputStream);
+		try (BulkReportWriter report = new BulkReportWriter(this.objectMapper, outputStream)) {
+			List<ClientEntity> chunk = new ArrayList<>(chunkSize);
+			List<Long> indexes = new ArrayList<>(chunkSize);
+			long index = 0;
+			try {
+				JsonNode row;
+				while ((row = rowReader.next()) != null) {
+					ClientEntity entity = toClientEntity(row, rowReader, index, report);
+					if (entity != null) {
+						chunk.add(entity);
+						indexes.add(index);
+						if (chunk.size() == chunkSize) {
+							insertChunk(chunk, indexes, report);
+						}
+					}
+					index++;
+				}
+			} catch (JsonProcessingException e) {
+				// The rest of the body cannot be parsed, the rows read so far are still inserted
+				report.row(index, null, BulkRowStatus.INVALID, "Malformed input, stopped reading: " + e.getOriginalMessage());
+			}
+			insertChunk(chunk, indexes, report);
+		}
+	}
+
+	private ClientEntity toClientEntity(JsonNode row, JsonRowReader rowReader, long index, BulkReportWriter report)
+			throws IOException {
+		ClientBoundaryAddNewClient clientBoundary;
+		try {
+			clientBoundary = rowReader.convert(row, ClientBoundaryAddNewClient.class);
+		} catch (JsonProcessingException e) {
+			report.row(index, null, BulkRowStatus.INVALID, e.getOriginalMessage());
+			return null;
+		}
+		String error = validateClient(clientBoundary);
+		if (error != null) {
+			report.row(index, clientBoundary.getId(), BulkRowStatus.INVALID, error);
+			return null;
+		}
+		return ClientEntity.builder().clientName(clientBoundary.getClientName()).id(clientBoundary.getId())
+				.lastName(clientBoundary.getLastName()).phoneNumber(clientBoundary.getPhoneNumber())
+				.creationTimestamp(new Date()).build();
+	}
+
+	private String validateClient(ClientBoundaryAddNewClient clientBoundary) {
+		if (clientBoundary.getId() == null || clientBoundary.getId().trim().isEmpty()) {
+			return "id is missing";
+		}
+		if (clientBoundary.getClientName() == null || clientBoundary.getClientName().trim().isEmpty()) {
+			return "clientName is missing";
+		}
+		for (String value : new String[] { clientBoundary.getId(), clientBoundary.getClientName(),
+				clientBoundary.getLastName(), clientBoundary.getPhoneNumber() }) {
+			if (value != null && value.length() > BulkInserter.MAX_COLUMN_LENGTH) {
+				return "Values must be at most " + BulkInserter.MAX_COLUMN_LENGTH + " characters";
+			}
+		}
+		return null;
+	}
+
+	private void insertChunk(List<ClientEntity> chunk, List<Long> indexes, BulkReportWriter report) throws IOException {
+		if (chunk.isEmpty()) {
+			return;
+		}
+		Set<String> existingIds = this.bulkInserter
+				.selectExisting(chunk.stream().map(ClientEntity::getId).collect(Collectors.toList()));
+		List<ClientEntity> toInsert = new ArrayList<>(chunk.size());
+		List<Long> toInsertIndexes = new ArrayList<>(chunk.size());
+		for (int i = 0; i < chunk.size(); i++) {
+			// add() also catches an id repeated inside the chunk
+			if (existingIds.add(chunk.get(i).getId())) {
+				toInsert.add(chunk.get(i));
+				toInsertIndexes.add(indexes.get(i));
+			} else {
+				report.row(indexes.get(i), chunk.get(i).getId(), BulkRowStatus.DUPLICATE, null);
+			}
+		}
+		this.bulkInserter.insert(toInsert, (position, status, message) -> {
+			String id = toInsert.get(position).getId();
+			if (status == BulkRowStatus.CREATED) {
+				this.readYourWritesTracker.recordWrite(WRITE_KEY_PREFIX + id);
+			}
+			report.row(toInsertIndexes.get(position), id, status, message);
+		});
+		chunk.clear();
+		indexes.clear();
+		report.flush();
+	}
+
+	private void setClientParameters(PreparedStatement preparedStatement, ClientEntity clientEntity)
+			throws SQLException {
+		preparedStatement.setString(1, clientEntity.getId());
+		preparedStatement.setString(2, clientEntity.getClientName());
+		preparedStatement.setTimestamp(3, new Timestamp(clientEntity.getCreationTimestamp().getTime()));
+		preparedStatement.setString(4, clientEntity.getLastName());
+		preparedStatement.setString(5, clientEntity.getPhoneNumber());
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public PageBoundary<ClientBoundaryBase> getAll(String cursor, int size) {
+		PageCursor.validateSize(size);
+		ClientKeyset keyset = ClientKeyset.after(cursor);
+		TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+		transactionTemplate.setReadOnly(true);
+		// Seeks on the (client_name, id) index and reads only those columns, one extra row tells if there is a next page
+		List<Object[]> rows = transactionTemplate.execute(transactionStatus -> {
+			Query query = this.entityManager.createNativeQuery(keyset.getSql());
+			keyset.getParameters().forEach(query::setParameter);
+			return this.performanceMonitor.record(Phase.QUERY, "clients.page",
+					() -> (List<Object[]>) query.setMaxResults(size + 1).getResultList());
+		});
+		return ClientKeyset.toPage(rows.stream().map(row -> new String[] { (String) row[0], (String) row[1] })
+				.collect(Collectors.toList()), size);
+	}
+
+	@Override
+	public void export(ExportFormat format, OutputStream outputStream) throws IOException {
+		this.tableExporter.export("SELECT id, client_name, last_name, phone_number, creation_timestamp FROM clients",
+				format, outputStream, "id", "clientName", "lastName", "phoneNumber", "creationTimestamp");
 	}
 
 	@Override
@@ -0,0 +1,145 @@
+package demo.logic.service;
+
+import java.sql.Timestamp;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import demo.config.CacheConfig;
+import demo.config.Permission;
+import demo.logic.service.interfaces.CacheInvalidationBus;
+import demo.logic.utilities.XMLReader;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Sends cache invalidations to the other nodes through the cache_invalidations
+ * table, which every node polls every invalidationPollInterval milliseconds.
+ * With no interval configured the node is assumed to be alone and nothing is
+ * written. Rows are kept for a minute, the cache TTLs cover anything missed.
+ *
+ * Ids are handed out at insert time but become visible at commit, so a
+ * smaller id can appear after a larger one was read. The ids skipped over are
+ * kept as gaps and read again until they show up or GAP_TIMEOUT_MILLIS pass,
+ * which also drops the ids of rolled back inserts.
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class DatabaseCacheInvalidationBus implements CacheInvalidationBus {
+	private static final long RETENTION_MILLIS = TimeUnit.MINUTES.toMillis(1);
+	private static final long GAP_TIMEOUT_MILLIS = TimeUnit.SECONDS.toMillis(10);
+	private static final int MAX_GAPS = 1000;
+	private static final String INSERT_SQL = "INSERT INTO cache_invalidations (cache_name, cache_key, node, creation_timestamp)"
+			+ " VALUES(?, ?, ?, ?)";
+	private final String node = UUID.randomUUID().toString();
+	private @NonNull XMLReader xmlReader;
+	private @NonNull JdbcTemplate jdbcTemplate;
+	private final List<BiConsumer<String, Collection<String>>> listeners = new CopyOnWriteArrayList<>();
+	private volatile ScheduledExecutorService poller;
+	private long lastSeenId;
+	// Id not seen yet -> when to stop waiting for it, only used by the poller thread
+	private final NavigableMap<Long, Long> gaps = new TreeMap<>();
+	private long lastCleanup;
+
+	@EventListener(ApplicationReadyEvent.class)
+	private void init() {
+		CacheConfig cacheConfig = this.xmlReader.loadConfigFile().getConfiguration(Permission.CACHE, CacheConfig.class);
+		long pollInterval = cacheConfig.getInvalidationPollInterval();
+		if (pollInterval <= 0) {
+			return;
+		}
+		Long lastId = this.jdbcTemplate.queryForObject("SELECT MAX(id) FROM cache_invalidations", Long.class);
+		this.lastSeenId = lastId != null ? lastId : 0;
+		ScheduledExecutorService poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "cache-invalidation-poller");
+			thread.setDaemon(true);
+			return thread;
+		});
+		poller.scheduleWithFixedDelay(this::poll, pollInterval, pollInterval, TimeUnit.MILLISECONDS);
+		this.poller = poller;
+	}
+
+	@PreDestroy
+	public void close() {
+		if (this.poller != null) {
+			this.poller.shutdownNow();
+		}
+	}
+
+	@Override
+	public void publish(String cacheName, Collection<String> keys) {
+		if (this.poller == null) {
+			return;
+		}
+		Timestamp now = new Timestamp(System.currentTimeMillis());
+		Collection<String> rows = keys != null ? keys : Collections.singletonList(null);
+		try {
+			this.jdbcTemplate.batchUpdate(INSERT_SQL, rows.stream()
+					.map(key -> new Object[] { cacheName, key, this.node, now }).collect(Collectors.toList()));
+		} catch (Exception e) {
+			// The other nodes catch up when their entries expire
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void subscribe(BiConsumer<String, Collection<String>> listener) {
+		this.listeners.add(listener);
+	}
+
+	private void poll() {
+		try {
+			long now = System.currentTimeMillis();
+			this.gaps.values().removeIf(deadline -> deadline <= now);
+			long fromId = this.gaps.isEmpty() ? this.lastSeenId : Math.min(this.gaps.firstKey() - 1, this.lastSeenId);
+			this.jdbcTemplate.query(
+					"SELECT id, cache_name, cache_key, node FROM cache_invalidations WHERE id > ? ORDER BY id",
+					resultSet -> {
+						long id = resultSet.getLong(1);
+						if (id <= this.lastSeenId) {
+							// Between the gaps, already delivered
+							if (this.gaps.remove(id) == null) {
+								return;
+							}
+						} else {
+							for (long missing = Math.max(this.lastSeenId + 1, id - MAX_GAPS); missing < id
+									&& this.gaps.size() < MAX_GAPS; missing++) {
+								this.gaps.put(missing, now + GAP_TIMEOUT_MILLIS);
+							}
+							this.lastSeenId = id;
+						}
+						if (!this.node.equals(resultSet.getString(4))) {
+							String key = resultSet.getString(3);
+							for (BiConsumer<String, Collection<String>> listener : this.listeners) {
+								listener.accept(resultSet.getString(2), key != null ? Collections.singletonList(key) : null);
+							}
+						}
+					}, fromId);
+			if (now - this.lastCleanup > RETENTION_MILLIS) {
+				this.jdbcTemplate.update("DELETE FROM cache_invalidations WHERE creation_timestamp < ?",
+						new Timestamp(now - RETENTION_MILLIS));
+				this.lastCleanup = now;
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+}
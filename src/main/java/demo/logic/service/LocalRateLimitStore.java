@@ -0,0 +1,64 @@
+package demo.logic.service;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import demo.config.Permission;
+import demo.config.RateLimitConfig;
+import demo.logic.service.interfaces.RateLimitStore;
+import demo.logic.utilities.XMLReader;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Token buckets in the memory of this node, limits are per node.
+ *
+ * A bucket is a single long, the time at which it is full again. Each token
+ * taken pushes that time one refill interval further, and a token is refused
+ * when the bucket would be short of more than burst tokens. Taking a token is
+ * one compare and set and different keys never contend. The buckets live in a
+ * bounded Caffeine cache, which is itself striped, and are dropped after an
+ * hour without use.
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class LocalRateLimitStore implements RateLimitStore {
+	private static final int DEFAULT_MAX_TRACKED_KEYS = 100_000;
+	private @NonNull XMLReader xmlReader;
+	private Cache<String, AtomicLong> buckets;
+
+	@PostConstruct
+	private void init() {
+		RateLimitConfig rateLimitConfig = this.xmlReader.loadConfigFile().getConfiguration(Permission.RATE_LIMIT,
+				RateLimitConfig.class);
+		int maxTrackedKeys = rateLimitConfig.getMaxTrackedKeys() > 0 ? rateLimitConfig.getMaxTrackedKeys()
+				: DEFAULT_MAX_TRACKED_KEYS;
+		this.buckets = Caffeine.newBuilder().maximumSize(maxTrackedKeys).expireAfterAccess(1, TimeUnit.HOURS).build();
+	}
+
+	@Override
+	public long tryAcquire(String key, int burst, long refillIntervalMillis) {
+		long now = System.currentTimeMillis();
+		AtomicLong bucket = this.buckets.get(key, k -> new AtomicLong(now));
+		while (true) {
+			long fullAt = bucket.get();
+			long next = Math.max(fullAt, now) + refillIntervalMillis;
+			long wait = next - now - burst * refillIntervalMillis;
+			if (wait > 0) {
+				return wait;
+			}
+			if (bucket.compareAndSet(fullAt, next)) {
+				return 0;
+			}
+		}
+	}
+
+}
@@ -0,0 +1,209 @@
+package demo.logic.service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import demo.config.PasswordConfig;
+import demo.config.Permission;
+import demo.logic.utilities.XMLReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Failed login counters kept in memory and written behind to
+ * users.number_of_login_attempt.
+ *
+ * Failures are counted over a sliding window of loginAttemptWindow seconds,
+ * estimated from the current and the previous window. Changed counters are
+ * written in one batch every loginAttemptFlushInterval milliseconds, except
+ * when a user crosses the loginAttempts limit: that one is written right away
+ * so the lockout survives a crash. Counters are loaded back on startup. The
+ * stored value seeds a user that is not in memory yet, after that this node's
+ * counter is the one that counts.
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class LoginAttemptTracker {
+	private static final long DEFAULT_FLUSH_INTERVAL = 1000;
+	private static final String UPDATE_SQL = "UPDATE users SET number_of_login_attempt = ? WHERE username = ?";
+	private @NonNull XMLReader xmlReader;
+	private @NonNull JdbcTemplate jdbcTemplate;
+	private @NonNull PlatformTransactionManager transactionManager;
+	private @NonNull MeterRegistry meterRegistry;
+	private final Map<String, Window> windows = new ConcurrentHashMap<>();
+	private final Set<String> dirty = ConcurrentHashMap.newKeySet();
+	private ScheduledExecutorService flusher;
+	private Counter lockouts;
+
+	@EventListener(ApplicationReadyEvent.class)
+	private void init() {
+		this.lockouts = this.meterRegistry.counter("login.lockouts");
+		long now = System.currentTimeMillis();
+		this.jdbcTemplate.query("SELECT username, number_of_login_attempt FROM users WHERE number_of_login_attempt > 0",
+				resultSet -> {
+					this.windows.putIfAbsent(resultSet.getString(1), new Window(now, resultSet.getInt(2), 0));
+				});
+		PasswordConfig passwordConfig = getPasswordConfig();
+		long flushInterval = passwordConfig.getLoginAttemptFlushInterval() > 0
+				? passwordConfig.getLoginAttemptFlushInterval()
+				: DEFAULT_FLUSH_INTERVAL;
+		this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "login-attempt-flusher");
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.flusher.scheduleWithFixedDelay(this::flush, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+	}
+
+	@PreDestroy
+	public void close() {
+		if (this.flusher != null) {
+			this.flusher.shutdown();
+			flush();
+		}
+	}
+
+	public int getAttempts(String username, int storedAttempts) {
+		long now = System.currentTimeMillis();
+		Window window = this.windows.get(username);
+		if (window == null) {
+			if (storedAttempts == 0) {
+				return 0;
+			}
+			window = this.windows.computeIfAbsent(username, key -> new Window(now, storedAttempts, 0));
+		}
+		return window.count(now, getWindowMillis());
+	}
+
+	public void recordFailure(String username, int storedAttempts) {
+		int limit = getPasswordConfig().getLoginAttempts();
+		long windowMillis = getWindowMillis();
+		Window updated;
+		int before;
+		while (true) {
+			long now = System.currentTimeMillis();
+			Window window = this.windows.get(username);
+			if (window == null) {
+				window = new Window(now, storedAttempts, 0);
+				if (this.windows.putIfAbsent(username, window) != null) {
+					continue;
+				}
+			}
+			before = window.count(now, windowMillis);
+			updated = window.increment(now, windowMillis);
+			if (this.windows.replace(username, window, updated)) {
+				break;
+			}
+		}
+		int after = updated.count(System.currentTimeMillis(), windowMillis);
+		if (before <= limit && after > limit) {
+			// Locked out, do not leave it to the next flush
+			this.lockouts.increment();
+			this.dirty.remove(username);
+			this.jdbcTemplate.update(UPDATE_SQL, after, username);
+		} else {
+			this.dirty.add(username);
+		}
+	}
+
+	public void recordSuccess(String username) {
+		// Nothing to reset means nothing to write
+		if (this.windows.remove(username) != null) {
+			this.dirty.add(username);
+		}
+	}
+
+	// For callers that already wrote 0 themselves
+	public void reset(String username) {
+		this.windows.remove(username);
+	}
+
+	private void flush() {
+		try {
+			long now = System.currentTimeMillis();
+			long windowMillis = getWindowMillis();
+			List<Object[]> updates = new ArrayList<>();
+			for (String username : this.dirty) {
+				this.dirty.remove(username);
+				Window window = this.windows.get(username);
+				int count = window != null ? window.count(now, windowMillis) : 0;
+				updates.add(new Object[] { count, username });
+				if (count == 0 && window != null) {
+					// Forget users whose failures fell out of the window
+					this.windows.remove(username, window);
+				}
+			}
+			if (!updates.isEmpty()) {
+				new TransactionTemplate(this.transactionManager)
+						.execute(transactionStatus -> this.jdbcTemplate.batchUpdate(UPDATE_SQL, updates));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private long getWindowMillis() {
+		return TimeUnit.SECONDS.toMillis(getPasswordConfig().getLoginAttemptWindow());
+	}
+
+	private PasswordConfig getPasswordConfig() {
+		return this.xmlReader.loadConfigFile().getConfiguration(Permission.PASSWORD, PasswordConfig.class);
+	}
+
+	// Immutable so updates are a compare and set on the map entry, a window of 0 never expires anything
+	private static final class Window {
+		private final long start;
+		private final int current;
+		private final int previous;
+
+		private Window(long start, int current, int previous) {
+			this.start = start;
+			this.current = current;
+			this.previous = previous;
+		}
+
+		private Window slide(long now, long windowMillis) {
+			if (windowMillis <= 0 || now < this.start + windowMillis) {
+				return this;
+			}
+			if (now < this.start + 2 * windowMillis) {
+				return new Window(this.start + windowMillis, 0, this.current);
+			}
+			return new Window(now, 0, 0);
+		}
+
+		private Window increment(long now, long windowMillis) {
+			Window window = slide(now, windowMillis);
+			return new Window(window.start, window.current + 1, window.previous);
+		}
+
+		private int count(long now, long windowMillis) {
+			Window window = slide(now, windowMillis);
+			if (windowMillis <= 0 || window.previous == 0) {
+				return window.current;
+			}
+			// The part of the previous window that still overlaps the sliding window
+			double overlap = 1 - (double) (now - window.start) / windowMillis;
+			return window.current + (int) Math.ceil(window.previous * overlap);
+		}
+	}
+
+}
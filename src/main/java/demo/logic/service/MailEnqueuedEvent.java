@@ -0,0 +1,16 @@
+package demo.logic.service;
+
+import org.springframework.context.ApplicationEvent;
+
+public class MailEnqueuedEvent extends ApplicationEvent {
+
+	/**
+	 * 
+	 */
+	private static final long serialVersionUID = 1L;
+
+	public MailEnqueuedEvent(Object source) {
+		super(source);
+	}
+
+}
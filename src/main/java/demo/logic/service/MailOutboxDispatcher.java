@@ -0,0 +1,278 @@
+package demo.logic.service;
+
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import demo.config.GeneralConfig;
+import demo.config.MailConfig;
+import demo.config.Permission;
+import demo.config.VirtualThreads;
+import demo.data.MailOutboxEntity;
+import demo.data.MailOutboxStatus;
+import demo.logic.utilities.OutboxCipher.DecryptionException;
+import demo.logic.utilities.XMLReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Drains the mail_outbox table written by {@link MailServiceImpl}. Rows are
+ * claimed by pushing their next attempt past a lease, so several workers (or
+ * nodes) never send the same row twice and rows of a crashed worker are picked
+ * up again once the lease expires. Failed sends are retried with exponential
+ * backoff until the attempts run out, then the row is kept as DEAD with its
+ * content wiped. A row whose content cannot be decrypted goes DEAD at once.
+ * Sent rows are deleted.
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class MailOutboxDispatcher {
+	private static final int DEFAULT_WORKERS = 2;
+	private static final long DEFAULT_POLL_INTERVAL = 1000;
+	private static final int DEFAULT_BATCH_SIZE = 20;
+	private static final int DEFAULT_MAX_ATTEMPTS = 8;
+	private static final long DEFAULT_RETRY_BACKOFF = 5000;
+	private static final long MAX_RETRY_BACKOFF = TimeUnit.HOURS.toMillis(1);
+	private static final long LEASE_MILLIS = TimeUnit.MINUTES.toMillis(5);
+	private @NonNull XMLReader xmlReader;
+	private @NonNull MailServiceImpl mailService;
+	private @NonNull EntityManager entityManager;
+	private @NonNull PlatformTransactionManager transactionManager;
+	private @NonNull MeterRegistry meterRegistry;
+	private final AtomicLong queueDepth = new AtomicLong();
+	private final AtomicLong deadLetters = new AtomicLong();
+	private final AtomicInteger pendingWakeUps = new AtomicInteger();
+	private ScheduledExecutorService workers;
+	private ExecutorService virtualWorkers;
+	private Semaphore runningPolls;
+	private Timer sendTimer;
+	private Timer deliveryTimer;
+	private Counter retryCounter;
+	private Counter deadLetterCounter;
+
+	@EventListener(ApplicationReadyEvent.class)
+	private void init() {
+		Gauge.builder("mail.outbox.depth", this.queueDepth, AtomicLong::get)
+				.description("Mails waiting to be sent").register(this.meterRegistry);
+		Gauge.builder("mail.outbox.dead", this.deadLetters, AtomicLong::get)
+				.description("Mails that ran out of attempts").register(this.meterRegistry);
+		this.sendTimer = Timer.builder("mail.outbox.send").description("SMTP send latency")
+				.register(this.meterRegistry);
+		this.deliveryTimer = Timer.builder("mail.outbox.delivery")
+				.description("Time from enqueue until the mail was sent").register(this.meterRegistry);
+		this.retryCounter = this.meterRegistry.counter("mail.outbox.retries");
+		this.deadLetterCounter = this.meterRegistry.counter("mail.outbox.dead.letters");
+		// Dead rows queued before their content was wiped on failure
+		new TransactionTemplate(this.transactionManager).execute(transactionStatus -> this.entityManager
+				.createNativeQuery("UPDATE mail_outbox SET content = NULL WHERE status = :dead AND content IS NOT NULL")
+				.setParameter("dead", MailOutboxStatus.DEAD.name()).executeUpdate());
+
+		MailConfig mailConfig = getMailConfig();
+		int workerCount = mailConfig.getOutboxWorkers() > 0 ? mailConfig.getOutboxWorkers() : DEFAULT_WORKERS;
+		long pollInterval = mailConfig.getOutboxPollInterval() > 0 ? mailConfig.getOutboxPollInterval()
+				: DEFAULT_POLL_INTERVAL;
+		// The workers mostly wait for SMTP and the database, virtual threads do not hold a core meanwhile. A
+		// scheduled pool keeps its threads, so it stays on one platform thread that hands each poll to a new
+		// virtual one
+		boolean virtualThreads = this.xmlReader.loadConfigFile()
+				.getConfiguration(Permission.GENERAL, GeneralConfig.class).isVirtualThreads();
+		this.virtualWorkers = virtualThreads ? VirtualThreads.newVirtualThreadPerTaskExecutor("mail-outbox-") : null;
+		this.runningPolls = new Semaphore(workerCount);
+		this.workers = this.virtualWorkers != null
+				? Executors.newScheduledThreadPool(1, VirtualThreads.newThreadFactory("mail-outbox-scheduler-", false))
+				: Executors.newScheduledThreadPool(workerCount, VirtualThreads.newThreadFactory("mail-outbox-", false));
+		for (int i = 0; i < workerCount; i++) {
+			this.workers.scheduleWithFixedDelay(this::startPoll, i * pollInterval / workerCount, pollInterval,
+					TimeUnit.MILLISECONDS);
+		}
+	}
+
+	@TransactionalEventListener
+	public void onMailEnqueued(MailEnqueuedEvent event) {
+		// Skip the wait for the next poll, one extra poll covers a burst of commits
+		if (this.workers != null && this.pendingWakeUps.compareAndSet(0, 1)) {
+			this.workers.execute(() -> {
+				this.pendingWakeUps.set(0);
+				startPoll();
+			});
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		if (this.workers != null) {
+			this.workers.shutdown();
+		}
+		if (this.virtualWorkers != null) {
+			this.virtualWorkers.shutdown();
+		}
+	}
+
+	// On the calling thread, or on a virtual one with at most outboxWorkers polls running
+	private void startPoll() {
+		if (this.virtualWorkers == null) {
+			poll();
+			return;
+		}
+		if (this.runningPolls.tryAcquire()) {
+			try {
+				this.virtualWorkers.execute(() -> {
+					try {
+						poll();
+					} finally {
+						this.runningPolls.release();
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				// Shutting down
+				this.runningPolls.release();
+			}
+		}
+	}
+
+	private void poll() {
+		try {
+			MailConfig mailConfig = getMailConfig();
+			int batchSize = mailConfig.getOutboxBatchSize() > 0 ? mailConfig.getOutboxBatchSize() : DEFAULT_BATCH_SIZE;
+			for (Long id : findDueIds(batchSize)) {
+				MailOutboxEntity mail = claim(id);
+				if (mail != null) {
+					deliver(mail, mailConfig);
+				}
+			}
+			updateQueueGauges();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private List<Long> findDueIds(int batchSize) {
+		return new TransactionTemplate(this.transactionManager).execute(transactionStatus -> {
+			List<Number> ids = this.entityManager
+					.createNativeQuery("SELECT id FROM mail_outbox WHERE status IN (:statuses)"
+							+ " AND next_attempt_timestamp <= :now ORDER BY id")
+					.setParameter("statuses", Arrays.asList(MailOutboxStatus.PENDING.name(),
+							MailOutboxStatus.SENDING.name()))
+					.setParameter("now", new Date()).setMaxResults(batchSize).getResultList();
+			return ids.stream().map(Number::longValue).collect(Collectors.toList());
+		});
+	}
+
+	private MailOutboxEntity claim(Long id) {
+		return new TransactionTemplate(this.transactionManager).execute(transactionStatus -> {
+			Date now = new Date();
+			int claimed = this.entityManager
+					.createNativeQuery("UPDATE mail_outbox SET status = :status, attempts = attempts + 1,"
+							+ " next_attempt_timestamp = :lease WHERE id = :id AND status <> :dead"
+							+ " AND next_attempt_timestamp <= :now")
+					.setParameter("status", MailOutboxStatus.SENDING.name())
+					.setParameter("lease", new Date(now.getTime() + LEASE_MILLIS))
+					.setParameter("id", id)
+					.setParameter("dead", MailOutboxStatus.DEAD.name())
+					.setParameter("now", now).executeUpdate();
+			if (claimed == 0) {
+				// Another worker got it first
+				return null;
+			}
+			return (MailOutboxEntity) this.entityManager
+					.createNativeQuery("SELECT * FROM mail_outbox WHERE id = :id", MailOutboxEntity.class)
+					.setParameter("id", id).getSingleResult();
+		});
+	}
+
+	private void deliver(MailOutboxEntity mail, MailConfig mailConfig) {
+		long start = System.nanoTime();
+		try {
+			this.mailService.send(mail);
+			this.sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			this.deliveryTimer.record(System.currentTimeMillis() - mail.getCreationTimestamp().getTime(),
+					TimeUnit.MILLISECONDS);
+			new TransactionTemplate(this.transactionManager).execute(transactionStatus -> this.entityManager
+					.createNativeQuery("DELETE FROM mail_outbox WHERE id = :id").setParameter("id", mail.getId())
+					.executeUpdate());
+		} catch (DecryptionException e) {
+			// Queued with another key, no retry can send it
+			reschedule(mail, mailConfig, e, true);
+		} catch (Exception e) {
+			this.sendTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+			reschedule(mail, mailConfig, e, false);
+		}
+	}
+
+	private void reschedule(MailOutboxEntity mail, MailConfig mailConfig, Exception cause, boolean permanent) {
+		int maxAttempts = mailConfig.getOutboxMaxAttempts() > 0 ? mailConfig.getOutboxMaxAttempts()
+				: DEFAULT_MAX_ATTEMPTS;
+		long backoff = mailConfig.getOutboxRetryBackoff() > 0 ? mailConfig.getOutboxRetryBackoff()
+				: DEFAULT_RETRY_BACKOFF;
+		// attempts was already incremented by the claim
+		boolean dead = permanent || mail.getAttempts() >= maxAttempts;
+		long delay = Math.min(MAX_RETRY_BACKOFF, backoff << Math.min(mail.getAttempts() - 1, 20));
+		String error = String.valueOf(cause.getMessage());
+		// A dead row is only kept for inspection, the reset password it carried is dropped
+		String sqlQueryAsString = dead
+				? "UPDATE mail_outbox SET status = :status, next_attempt_timestamp = :next, last_error = :last_error,"
+						+ " content = NULL WHERE id = :id"
+				: "UPDATE mail_outbox SET status = :status, next_attempt_timestamp = :next,"
+						+ " last_error = :last_error WHERE id = :id";
+		new TransactionTemplate(this.transactionManager).execute(transactionStatus -> this.entityManager
+				.createNativeQuery(sqlQueryAsString)
+				.setParameter("status", dead ? MailOutboxStatus.DEAD.name() : MailOutboxStatus.PENDING.name())
+				.setParameter("next", new Date(System.currentTimeMillis() + delay))
+				.setParameter("last_error", error.length() > 1024 ? error.substring(0, 1024) : error)
+				.setParameter("id", mail.getId()).executeUpdate());
+		if (dead) {
+			this.deadLetterCounter.increment();
+		} else {
+			this.retryCounter.increment();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private void updateQueueGauges() {
+		List<Object[]> rows = new TransactionTemplate(this.transactionManager)
+				.execute(transactionStatus -> this.entityManager
+						.createNativeQuery("SELECT status, COUNT(*) FROM mail_outbox GROUP BY status").getResultList());
+		long depth = 0;
+		long dead = 0;
+		for (Object[] row : rows) {
+			long count = ((Number) row[1]).longValue();
+			if (MailOutboxStatus.DEAD.name().equals(row[0])) {
+				dead += count;
+			} else {
+				depth += count;
+			}
+		}
+		this.queueDepth.set(depth);
+		this.deadLetters.set(dead);
+	}
+
+	private MailConfig getMailConfig() {
+		return this.xmlReader.loadConfigFile().getConfiguration(Permission.MAIL, MailConfig.class);
+	}
+
+}
@@ -1,30 +1,41 @@
 package demo.logic.service;
 
 import java.io.IOException;
-import java.io.StringWriter;
-import java.util.HashMap;
+import java.util.Date;
 import java.util.Map;
 
 import javax.mail.MessagingException;
 import javax.mail.internet.MimeMessage;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.event.EventListener;
 import org.springframework.mail.MailException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import demo.config.ConfigSetter;
 import demo.config.Configurations;
+import demo.config.ConfigurationsChangedEvent;
 import demo.config.MailConfig;
 import demo.config.Permission;
+import demo.data.MailOutboxEntity;
+import demo.data.MailOutboxStatus;
 import demo.logic.exceptions.MailFailedException;
 import demo.logic.service.interfaces.MailService;
+import demo.logic.utilities.MailTemplateRegistry;
+import demo.logic.utilities.OutboxCipher;
+import demo.logic.utilities.PerformanceMonitor;
+import demo.logic.utilities.PerformanceMonitor.Phase;
 import demo.logic.utilities.XMLReader;
-import freemarker.template.Configuration;
-import freemarker.template.Template;
 import freemarker.template.TemplateException;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -34,20 +45,50 @@ import lombok.RequiredArgsConstructor;
 public class MailServiceImpl implements MailService {
 
 
+	public static final String RESET_PASSWORD_MAIL_TYPE = "RESET_PASSWORD";
 	private final long PERMISSIONS_VALUE = Permission.MAIL.getId();
 	@NonNull
 	private final JavaMailSender javaMailSender;
 	@NonNull
-	private final Configuration configuration;
+	private final MailTemplateRegistry mailTemplateRegistry;
 	@NonNull
 	private final XMLReader xmlReader;
-	private MailConfig mailConfig;
+	@NonNull
+	private final EntityManager entityManager;
+	@NonNull
+	private final PlatformTransactionManager transactionManager;
+	@NonNull
+	private final ApplicationEventPublisher eventPublisher;
+	@NonNull
+	private final PerformanceMonitor performanceMonitor;
+	private volatile MailConfig mailConfig;
+	// Replaced as a whole on a config change, a send in progress keeps the sender it started with
+	private volatile JavaMailSender mailSender;
+	private OutboxCipher outboxCipher;
 	
 	@EventListener(ApplicationReadyEvent.class)
 	private void init() {
 		Configurations configurations = xmlReader.loadConfigFile();
+		// Read once, a new key could not open the mails queued with the old one
+		this.outboxCipher = OutboxCipher.create(
+				configurations.getConfiguration(Permission.MAIL, MailConfig.class).getOutboxKey());
+		this.setMailConfig(configurations);
+	}
+
+	@EventListener(ConfigurationsChangedEvent.class)
+	private void onConfigurationsChanged(ConfigurationsChangedEvent event) {
+		this.setMailConfig(event.getConfigurations());
+	}
+
+	private void setMailConfig(Configurations configurations) {
 		Map<Permission, Object> permissions = configurations.getConfigurations(PERMISSIONS_VALUE);
-		this.mailConfig = (MailConfig) permissions.get(Permission.MAIL);
+		MailConfig mailConfig = (MailConfig) permissions.get(Permission.MAIL);
+		// Any other JavaMailSender, e.g. a test double, is used as is
+		this.mailSender = this.javaMailSender instanceof JavaMailSenderImpl ? ConfigSetter.newJavaMailSender(mailConfig)
+				: this.javaMailSender;
+		this.mailTemplateRegistry.register(RESET_PASSWORD_MAIL_TYPE, mailConfig.getResetPasswordHTMLTemplateFile(),
+				"newPassword");
+		this.mailConfig = mailConfig;
 	}
 
 	@Override
@@ -58,7 +99,11 @@ public class MailServiceImpl implements MailService {
 			message.setTo(to);
 			message.setSubject(subject);
 			message.setText(body);
-			javaMailSender.send(message);
+			JavaMailSender mailSender = this.mailSender;
+			this.performanceMonitor.record(Phase.MAIL, "plain", () -> {
+				mailSender.send(message);
+				return null;
+			});
 		} catch (MailException e) {
 			e.printStackTrace();
 			throw new MailFailedException("Sending email has failed");
@@ -68,27 +113,69 @@ public class MailServiceImpl implements MailService {
 	@Override
 	public void sendResetPasswordMail(String to, String subject, String newPassword) {
 		try {
-			MimeMessage mimeMessage = javaMailSender.createMimeMessage();
+			JavaMailSender mailSender = this.mailSender;
+			MimeMessage mimeMessage = mailSender.createMimeMessage();
 	        MimeMessageHelper helper = new MimeMessageHelper(mimeMessage);
 	        helper.setFrom(this.mailConfig.getFrom());
 	        helper.setTo(to);
 	        helper.setSubject(subject);
 	        String body = getMailContent(newPassword);
 	        helper.setText(body, true);
-	        javaMailSender.send(mimeMessage);
+			this.performanceMonitor.record(Phase.MAIL, "resetPassword", () -> {
+				mailSender.send(mimeMessage);
+				return null;
+			});
 		} catch (IOException | TemplateException | MessagingException e) {
 			e.printStackTrace();
 			throw new MailFailedException("Sending reset password email has failed");
 		}
 	}
 	
+	@Override
+	public void enqueueResetPasswordMail(String to, String subject, String newPassword) {
+		try {
+			// Joins the caller's transaction so the mail is only sent if the reset is committed
+			new TransactionTemplate(this.transactionManager).execute(transactionStatus -> {
+				String sqlQueryAsString = "INSERT INTO mail_outbox (mail_type, recipient, subject, content, status, attempts, next_attempt_timestamp, creation_timestamp)"
+						+ " VALUES(:mail_type, :recipient, :subject, :content, :status, 0, :next_attempt_timestamp, :creation_timestamp)";
+				Date now = new Date();
+				Query query = this.entityManager.createNativeQuery(sqlQueryAsString)
+						.setParameter("mail_type", RESET_PASSWORD_MAIL_TYPE)
+						.setParameter("recipient", to)
+						.setParameter("subject", subject)
+						.setParameter("content", encryptContent(newPassword))
+						.setParameter("status", MailOutboxStatus.PENDING.name())
+						.setParameter("next_attempt_timestamp", now)
+						.setParameter("creation_timestamp", now);
+				this.performanceMonitor.record(Phase.QUERY, "mailOutbox.insert", query::executeUpdate);
+				this.eventPublisher.publishEvent(new MailEnqueuedEvent(this));
+				return null;
+			});
+		} catch (Exception e) {
+			e.printStackTrace();
+			throw new MailFailedException("Queueing reset password email has failed");
+		}
+	}
+
+	void send(MailOutboxEntity mail) {
+		switch (mail.getMailType()) {
+		case RESET_PASSWORD_MAIL_TYPE:
+			sendResetPasswordMail(mail.getRecipient(), mail.getSubject(),
+					this.outboxCipher.decrypt(mail.getContent()));
+			break;
+		default:
+			sendMail(mail.getRecipient(), mail.getSubject(), mail.getContent());
+			break;
+		}
+	}
+	
+	// The reset password is only stored encrypted, MailOutboxDispatcher deletes or wipes it once the mail is done
+	String encryptContent(String content) {
+		return this.outboxCipher.encrypt(content);
+	}
+	
 	private String getMailContent(String newPassword) throws IOException, TemplateException {
-        StringWriter stringWriter = new StringWriter();
-        Map<String, Object> model = new HashMap<>();
-        model.put("newPassword", newPassword);
-        Template template = configuration.getTemplate(this.mailConfig.getResetPasswordHTMLTemplateFile());
-        template.process(model, stringWriter);
-        return stringWriter.getBuffer().toString();
+		return this.mailTemplateRegistry.render(RESET_PASSWORD_MAIL_TYPE, newPassword);
     }
 
 }
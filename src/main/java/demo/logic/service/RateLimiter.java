@@ -0,0 +1,87 @@
+package demo.logic.service;
+
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import demo.config.Permission;
+import demo.config.RateLimitConfig;
+import demo.logic.exceptions.TooManyRequestsException;
+import demo.logic.service.interfaces.RateLimitStore;
+import demo.logic.utilities.XMLReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Limits the password checking requests per client address, per username
+ * from each address and per username from all addresses, so a credential
+ * stuffing run is turned away before it costs a hash or a query. The tight
+ * username bucket is keyed on the address, otherwise anyone could keep a user
+ * locked out by guessing its password; the account bucket is much larger and
+ * only stops guessing spread over many addresses.
+ * Rejected requests get a {@link TooManyRequestsException} with the seconds
+ * until the next token.
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class RateLimiter {
+	private static final int DEFAULT_IP_BURST = 20;
+	private static final int DEFAULT_IP_RATE_PER_MINUTE = 60;
+	private static final int DEFAULT_USERNAME_BURST = 5;
+	private static final int DEFAULT_USERNAME_RATE_PER_MINUTE = 10;
+	private static final int DEFAULT_ACCOUNT_BURST = 50;
+	private static final int DEFAULT_ACCOUNT_RATE_PER_MINUTE = 30;
+	private @NonNull XMLReader xmlReader;
+	private @NonNull RateLimitStore rateLimitStore;
+	private @NonNull MeterRegistry meterRegistry;
+	private Counter ipRejectedCounter;
+	private Counter usernameRejectedCounter;
+	private Counter accountRejectedCounter;
+
+	@PostConstruct
+	private void init() {
+		this.ipRejectedCounter = this.meterRegistry.counter("rate.limit.rejected", "key", "ip");
+		this.usernameRejectedCounter = this.meterRegistry.counter("rate.limit.rejected", "key", "username");
+		this.accountRejectedCounter = this.meterRegistry.counter("rate.limit.rejected", "key", "account");
+	}
+
+	public void check(String clientAddress, String username) {
+		RateLimitConfig rateLimitConfig = this.xmlReader.loadConfigFile().getConfiguration(Permission.RATE_LIMIT,
+				RateLimitConfig.class);
+		if (!rateLimitConfig.isEnable()) {
+			return;
+		}
+		acquire("ip:" + clientAddress,
+				rateLimitConfig.getIpBurst() > 0 ? rateLimitConfig.getIpBurst() : DEFAULT_IP_BURST,
+				rateLimitConfig.getIpRatePerMinute() > 0 ? rateLimitConfig.getIpRatePerMinute()
+						: DEFAULT_IP_RATE_PER_MINUTE,
+				this.ipRejectedCounter);
+		if (username != null) {
+			acquire("username:" + clientAddress + ":" + username,
+					rateLimitConfig.getUsernameBurst() > 0 ? rateLimitConfig.getUsernameBurst()
+							: DEFAULT_USERNAME_BURST,
+					rateLimitConfig.getUsernameRatePerMinute() > 0 ? rateLimitConfig.getUsernameRatePerMinute()
+							: DEFAULT_USERNAME_RATE_PER_MINUTE,
+					this.usernameRejectedCounter);
+			acquire("account:" + username,
+					rateLimitConfig.getAccountBurst() > 0 ? rateLimitConfig.getAccountBurst() : DEFAULT_ACCOUNT_BURST,
+					rateLimitConfig.getAccountRatePerMinute() > 0 ? rateLimitConfig.getAccountRatePerMinute()
+							: DEFAULT_ACCOUNT_RATE_PER_MINUTE,
+					this.accountRejectedCounter);
+		}
+	}
+
+	private void acquire(String key, int burst, int ratePerMinute, Counter rejectedCounter) {
+		long wait = this.rateLimitStore.tryAcquire(key, burst, Math.max(1, TimeUnit.MINUTES.toMillis(1) / ratePerMinute));
+		if (wait > 0) {
+			rejectedCounter.increment();
+			throw new TooManyRequestsException(TimeUnit.MILLISECONDS.toSeconds(wait + 999));
+		}
+	}
+
+}
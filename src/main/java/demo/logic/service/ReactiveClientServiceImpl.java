@@ -0,0 +1,85 @@
+package demo.logic.service;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.r2dbc.core.DatabaseClient.GenericExecuteSpec;
+import org.springframework.stereotype.Service;
+
+import demo.boundary.ClientBoundaryAddNewClient;
+import demo.boundary.ClientBoundaryBase;
+import demo.boundary.PageBoundary;
+import demo.logic.exceptions.InternalErrorException;
+import demo.logic.service.interfaces.ReactiveClientService;
+import demo.logic.utilities.PageCursor;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The client API of ClientServiceImpl on R2DBC, for the reactive web stack.
+ * Same statements and page cursors, so both stacks can serve the same table.
+ * Statements are always bound, there is no insecure variant, and everything
+ * goes to the primary.
+ */
+@Service
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ReactiveClientServiceImpl implements ReactiveClientService {
+	private static final String INSERT_CLIENT_SQL = "INSERT INTO clients (id, client_name, creation_timestamp, last_name, phone_number)"
+			+ " VALUES(:id, :client_name, :creation_timestamp, :last_name, :phone_number)";
+	private @NonNull DatabaseClient databaseClient;
+
+	@Override
+	public Mono<ClientBoundaryBase> addNewClient(ClientBoundaryAddNewClient clientBoundary) {
+		// The primary key rejects an id that exists, no need to look it up first
+		GenericExecuteSpec insert = this.databaseClient.sql(INSERT_CLIENT_SQL);
+		insert = bind(insert, "id", clientBoundary.getId());
+		insert = bind(insert, "client_name", clientBoundary.getClientName());
+		insert = insert.bind("creation_timestamp", LocalDateTime.now());
+		insert = bind(insert, "last_name", clientBoundary.getLastName());
+		insert = bind(insert, "phone_number", clientBoundary.getPhoneNumber());
+		return insert.fetch().rowsUpdated()
+				.thenReturn(ClientBoundaryBase.builder().clientName(clientBoundary.getClientName()).build())
+				.onErrorMap(e -> {
+					e.printStackTrace();
+					return new InternalErrorException("Something went wrong");
+				});
+	}
+
+	@Override
+	public Mono<PageBoundary<ClientBoundaryBase>> getAll(String cursor, int size) {
+		PageCursor.validateSize(size);
+		ClientKeyset keyset = ClientKeyset.after(cursor);
+		GenericExecuteSpec query = this.databaseClient.sql(keyset.getSql() + " LIMIT :limit");
+		for (Map.Entry<String, Object> parameter : keyset.getParameters().entrySet()) {
+			query = query.bind(parameter.getKey(), parameter.getValue());
+		}
+		return query.bind("limit", size + 1)
+				.map((row, metadata) -> new String[] { row.get("client_name", String.class),
+						row.get("id", String.class) })
+				.all().collectList().map(rows -> ClientKeyset.toPage(rows, size));
+	}
+
+	@Override
+	public Flux<ClientBoundaryBase> streamAll() {
+		// Rows are read as the client consumes them
+		return this.databaseClient.sql("SELECT client_name FROM clients ORDER BY client_name, id")
+				.map((row, metadata) -> new ClientBoundaryBase(row.get("client_name", String.class))).all();
+	}
+
+	@Override
+	public Mono<Void> deleteAll() {
+		return this.databaseClient.sql("DELETE FROM clients").fetch().rowsUpdated().then();
+	}
+
+	private static GenericExecuteSpec bind(GenericExecuteSpec spec, String name, String value) {
+		return value != null ? spec.bind(name, value) : spec.bindNull(name, String.class);
+	}
+
+}
@@ -0,0 +1,145 @@
+package demo.logic.service;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import demo.config.CacheConfig;
+import demo.config.ConfigurationsChangedEvent;
+import demo.config.Permission;
+import demo.data.UserEntity;
+import demo.logic.service.interfaces.CacheInvalidationBus;
+import demo.logic.utilities.XMLReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Local cache of user rows by username, and of the usernames that do not
+ * exist, so login and signup storms are served from memory.
+ *
+ * Both are bounded and expire after a TTL. Every write to a user invalidates
+ * it here and, through the {@link CacheInvalidationBus}, on the other nodes.
+ * Callers get a copy they are free to change. Hits and misses are published as
+ * the cache.gets metrics of the users and users.missing caches.
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class UserCache {
+	public static final String NAME = "users";
+	private static final int DEFAULT_MAXIMUM_SIZE = 10_000;
+	private static final long DEFAULT_TTL = 30_000;
+	private static final long DEFAULT_NEGATIVE_TTL = 5_000;
+	private @NonNull XMLReader xmlReader;
+	private @NonNull MeterRegistry meterRegistry;
+	private @NonNull CacheInvalidationBus cacheInvalidationBus;
+	private Cache<String, UserEntity> users;
+	private Cache<String, Boolean> missing;
+
+	@PostConstruct
+	private void init() {
+		CacheConfig cacheConfig = getCacheConfig();
+		this.users = Caffeine.newBuilder().maximumSize(getMaximumSize(cacheConfig))
+				.expireAfterWrite(getTtl(cacheConfig), TimeUnit.MILLISECONDS).recordStats().build();
+		this.missing = Caffeine.newBuilder().maximumSize(getMaximumSize(cacheConfig))
+				.expireAfterWrite(getNegativeTtl(cacheConfig), TimeUnit.MILLISECONDS).recordStats().build();
+		CaffeineCacheMetrics.monitor(this.meterRegistry, this.users, NAME);
+		CaffeineCacheMetrics.monitor(this.meterRegistry, this.missing, NAME + ".missing");
+		this.cacheInvalidationBus.subscribe((cacheName, keys) -> {
+			if (NAME.equals(cacheName)) {
+				invalidateLocally(keys);
+			}
+		});
+	}
+
+	// The loader returns null for a username that does not exist, so does this. It should read the primary, an
+	// invalidation from another node can arrive before the replicas have the write
+	public UserEntity get(String username, Function<String, UserEntity> loader) {
+		if (this.missing.getIfPresent(username) != null) {
+			return null;
+		}
+		UserEntity entity = this.users.get(username, key -> {
+			UserEntity loaded = loader.apply(key);
+			if (loaded == null) {
+				this.missing.put(key, Boolean.TRUE);
+				return null;
+			}
+			return copy(loaded);
+		});
+		return entity != null ? copy(entity) : null;
+	}
+
+	// Called once the write is committed
+	public void invalidate(String username) {
+		invalidate(Collections.singletonList(username));
+	}
+
+	public void invalidate(Collection<String> usernames) {
+		invalidateLocally(usernames);
+		this.cacheInvalidationBus.publish(NAME, usernames);
+	}
+
+	public void invalidateAll() {
+		invalidateLocally(null);
+		this.cacheInvalidationBus.publish(NAME, null);
+	}
+
+	private void invalidateLocally(Collection<String> usernames) {
+		// users first, it waits for a load in progress that may still mark the username as missing
+		if (usernames == null) {
+			this.users.invalidateAll();
+			this.missing.invalidateAll();
+		} else {
+			this.users.invalidateAll(usernames);
+			this.missing.invalidateAll(usernames);
+		}
+	}
+
+	private UserEntity copy(UserEntity entity) {
+		return UserEntity.builder().username(entity.getUsername()).password(entity.getPassword())
+				.salt(entity.getSalt()).passwordHash(entity.getPasswordHash()).passwordSalt(entity.getPasswordSalt())
+				.email(entity.getEmail()).numberOfLoginAttempt(entity.getNumberOfLoginAttempt())
+				.creationTimestamp(entity.getCreationTimestamp()).oldPasswords(entity.getOldPasswords())
+				.passwordHistory(entity.getPasswordHistory()).build();
+	}
+
+	@EventListener(ConfigurationsChangedEvent.class)
+	private void onConfigurationsChanged(ConfigurationsChangedEvent event) {
+		CacheConfig cacheConfig = event.getConfigurations().getConfiguration(Permission.CACHE, CacheConfig.class);
+		int maximumSize = getMaximumSize(cacheConfig);
+		this.users.policy().eviction().ifPresent(eviction -> eviction.setMaximum(maximumSize));
+		this.missing.policy().eviction().ifPresent(eviction -> eviction.setMaximum(maximumSize));
+		this.users.policy().expireAfterWrite()
+				.ifPresent(expiration -> expiration.setExpiresAfter(getTtl(cacheConfig), TimeUnit.MILLISECONDS));
+		this.missing.policy().expireAfterWrite().ifPresent(
+				expiration -> expiration.setExpiresAfter(getNegativeTtl(cacheConfig), TimeUnit.MILLISECONDS));
+	}
+
+	private int getMaximumSize(CacheConfig cacheConfig) {
+		return cacheConfig.getUserCacheSize() > 0 ? cacheConfig.getUserCacheSize() : DEFAULT_MAXIMUM_SIZE;
+	}
+
+	private long getTtl(CacheConfig cacheConfig) {
+		return cacheConfig.getUserCacheTtl() > 0 ? cacheConfig.getUserCacheTtl() : DEFAULT_TTL;
+	}
+
+	private long getNegativeTtl(CacheConfig cacheConfig) {
+		return cacheConfig.getNegativeCacheTtl() > 0 ? cacheConfig.getNegativeCacheTtl() : DEFAULT_NEGATIVE_TTL;
+	}
+
+	private CacheConfig getCacheConfig() {
+		return this.xmlReader.loadConfigFile().getConfiguration(Permission.CACHE, CacheConfig.class);
+	}
+
+}
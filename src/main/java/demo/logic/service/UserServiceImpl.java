@@ -1,49 +1,89 @@
 package demo.logic.service;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.security.NoSuchAlgorithmException;
 import java.security.spec.InvalidKeySpecException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import javax.annotation.PreDestroy;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.Query;
 
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.jpa.TypedParameterValue;
+import org.hibernate.type.StringType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort.Direction;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
 import org.springframework.transaction.support.TransactionTemplate;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 
+import demo.boundary.BulkRowStatus;
+import demo.boundary.PageBoundary;
 import demo.boundary.UserBoundaryBase;
 import demo.boundary.UserBoundaryBaseWithPassword;
 import demo.boundary.UserBoundaryPasswordChange;
 import demo.boundary.UserBoundarySignup;
 import demo.config.Configurations;
+import demo.config.ConfigurationsChangedEvent;
 import demo.config.GeneralConfig;
+import demo.config.PasswordConfig;
 import demo.config.Permission;
+import demo.config.ReadYourWritesTracker;
 import demo.data.UserEntity;
 import demo.data.repository.UserRepository;
 import demo.logic.exceptions.InternalErrorException;
 import demo.logic.exceptions.InvalidInputDataException;
 import demo.logic.exceptions.InvalidPasswordException;
 import demo.logic.exceptions.InvalidUsernameOrPasswordException;
+import demo.logic.exceptions.ServiceOverloadedException;
 import demo.logic.service.interfaces.MailService;
 import demo.logic.service.interfaces.UserService;
+import demo.logic.utilities.BulkInserter;
+import demo.logic.utilities.BulkReportWriter;
 import demo.logic.utilities.Constants;
+import demo.logic.utilities.ExportFormat;
+import demo.logic.utilities.HashingPriority;
+import demo.logic.utilities.JsonRowReader;
+import demo.logic.utilities.PageCursor;
+import demo.logic.utilities.PasswordHash;
+import demo.logic.utilities.PasswordHistory;
 import demo.logic.utilities.PasswordManager;
+import demo.logic.utilities.PerformanceMonitor;
+import demo.logic.utilities.PerformanceMonitor.Phase;
+import demo.logic.utilities.TableExporter;
 import demo.logic.utilities.XMLReader;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
 
@@ -52,23 +92,86 @@ import lombok.RequiredArgsConstructor;
 public class UserServiceImpl implements UserService {
 	private final int SALT_BYTE_SIZE = 16;
 	private final long PERMISSIONS_VALUE = Permission.GENERAL.getId();
+	private final String WRITE_KEY_PREFIX = "users:";
+	private final int REHASH_WRITE_QUEUE_CAPACITY = 256;
+	// In the order of the UserEntity.DIRTY_* bits
+	private final String[] UPDATABLE_COLUMNS = { "password", "salt", "email", "number_of_login_attempt",
+			"old_passwords", "password_history", "password_hash", "password_salt" };
+	private final String INSERT_USER_SQL = "INSERT INTO users (username, creation_timestamp, email, number_of_login_attempt, password_hash, password_salt, password_history)"
+			+ " VALUES(?, ?, ?, ?, ?, ?, ?)";
 	private @NonNull UserRepository userRepository;
 	private @NonNull XMLReader xmlReader;
 	private @NonNull PasswordManager passwordManager;
-	private GeneralConfig generalConfig;
+	private volatile GeneralConfig generalConfig;
 	@PersistenceContext
 	private @NonNull EntityManager entityManager;
 	private @NonNull MailService emailService;
 	private @NonNull PlatformTransactionManager transactionManager;
 	private @NonNull TransactionTemplate transactionTemplate;
-	private Gson gson;
+	private @NonNull ReadYourWritesTracker readYourWritesTracker;
+	private @NonNull LoginAttemptTracker loginAttemptTracker;
+	private @NonNull UserCache userCache;
+	private @NonNull UsernameFilter usernameFilter;
+	private @NonNull TableExporter tableExporter;
+	private @NonNull JdbcTemplate jdbcTemplate;
+	private @NonNull ObjectMapper objectMapper;
+	private @NonNull PerformanceMonitor performanceMonitor;
+	private @NonNull MeterRegistry meterRegistry;
+	private ForkJoinPool bulkPool;
+	private ThreadPoolExecutor rehashWriter;
+	private BulkInserter<BulkUser> bulkInserter;
+	private Counter credentialFailures;
+	private Counter rejectedLogins;
+	private final Map<Integer, String> updateStatements = new ConcurrentHashMap<>();
 
 	@EventListener(ApplicationReadyEvent.class)
 	private void init() {
-		Configurations configurations = xmlReader.loadConfigFile();
+		this.setGeneralConfig(xmlReader.loadConfigFile());
+		// Bulk hashing gets its own pool so a large import does not queue ahead of interactive logins, and
+		// always leaves a core to the hashing executor. Read here, PasswordManager may not be initialized yet
+		int bulkThreads = this.xmlReader.loadConfigFile().getConfiguration(Permission.PASSWORD, PasswordConfig.class)
+				.getBulkHashingThreads();
+		int maxBulkThreads = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+		this.bulkPool = new ForkJoinPool(bulkThreads > 0 ? Math.min(bulkThreads, maxBulkThreads)
+				: Math.max(1, Runtime.getRuntime().availableProcessors() / 2),
+				pool -> {
+					ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+					thread.setName("user-bulk-" + thread.getPoolIndex());
+					return thread;
+				}, null, false);
+		// The rehash writes wait for a connection, so they stay off the hashing threads. Best effort, a write
+		// dropped because the queue is full is retried on the next login
+		this.rehashWriter = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(REHASH_WRITE_QUEUE_CAPACITY), runnable -> {
+					Thread thread = new Thread(runnable, "user-rehash-writer");
+					thread.setDaemon(true);
+					return thread;
+				}, new ThreadPoolExecutor.DiscardPolicy());
+		this.bulkInserter = new BulkInserter<>(this.jdbcTemplate, this.transactionManager, this.performanceMonitor,
+				"users", "username", INSERT_USER_SQL, this::setUserParameters);
+		this.credentialFailures = Counter.builder("login.failures").tag("reason", "credentials")
+				.register(this.meterRegistry);
+		this.rejectedLogins = Counter.builder("login.failures").tag("reason", "rejected").register(this.meterRegistry);
+	}
+
+	@PreDestroy
+	public void close() {
+		if (this.bulkPool != null) {
+			this.bulkPool.shutdownNow();
+		}
+		if (this.rehashWriter != null) {
+			this.rehashWriter.shutdown();
+		}
+	}
+
+	@EventListener(ConfigurationsChangedEvent.class)
+	private void onConfigurationsChanged(ConfigurationsChangedEvent event) {
+		this.setGeneralConfig(event.getConfigurations());
+	}
+
+	private void setGeneralConfig(Configurations configurations) {
 		Map<Permission, Object> permissions = configurations.getConfigurations(PERMISSIONS_VALUE);
 		this.generalConfig = (GeneralConfig) permissions.get(Permission.GENERAL);
-		this.gson = new Gson();
 	}
 
 	@Override
@@ -81,19 +184,11 @@ public class UserServiceImpl implements UserService {
 			// Generate new salt and hash
 			byte[] salt = new byte[SALT_BYTE_SIZE];
 			this.passwordManager.generateSaltValue(salt);
-			byte[] hash = this.passwordManager.encrypt(userBoundary.getPassword(), salt);
-			// Setting up the new user
-			List<String> oldPasswords = new ArrayList<>();
-			oldPasswords.add(new String(hash, PasswordManager.BYTE_CHARSET));
-			UserEntity entity = UserEntity.builder().username(userBoundary.getUsername())
-					.password(new String(hash, PasswordManager.BYTE_CHARSET))
-					.salt(new String(salt, PasswordManager.BYTE_CHARSET)).email(userBoundary.getEmail())
-					.numberOfLoginAttempt(0).creationTimestamp(new Date()).oldPasswords(this.gson.toJson(oldPasswords))
-					.build();
-
-			saveUser(entity);
+			PasswordHash hash = this.passwordManager.hash(userBoundary.getPassword(),
+					this.passwordManager.newParameters(salt), HashingPriority.SIGNUP);
+			saveUser(newUserEntity(userBoundary, salt, hash));
 			return UserBoundaryBase.builder().username(userBoundary.getUsername()).build();
-		} catch (UnsupportedEncodingException | InvalidKeySpecException | NoSuchAlgorithmException e) {
+		} catch (InvalidKeySpecException | NoSuchAlgorithmException e) {
 			e.printStackTrace();
 			throw new InternalErrorException("Something went wrong");
 		} catch (IllegalArgumentException e) {
@@ -102,26 +197,50 @@ public class UserServiceImpl implements UserService {
 		}
 	}
 
+	private UserEntity newUserEntity(UserBoundarySignup userBoundary, byte[] salt, PasswordHash hash) {
+		// Setting up the new user
+		return UserEntity.builder().username(userBoundary.getUsername()).passwordHash(hash.encodeStored())
+				.passwordSalt(salt).email(userBoundary.getEmail())
+				.numberOfLoginAttempt(0).creationTimestamp(new Date())
+				.passwordHistory(this.passwordManager.newPasswordHistory(hash).getData()).build();
+	}
+
 	@Override
 	public UserBoundaryBase login(UserBoundaryBaseWithPassword userBoundary) {
 		// Check if user exists
-		UserEntity entity = findByUsernameAndPassword(userBoundary);
+		Credentials credentials;
+		try {
+			credentials = findCredentials(userBoundary);
+		} catch (InvalidUsernameOrPasswordException ex) {
+			this.credentialFailures.increment();
+			throw ex;
+		}
+		UserEntity entity = credentials.entity;
+		// The counters live in memory and are written behind
+		int storedAttempts = entity.getNumberOfLoginAttempt();
+		entity.setNumberOfLoginAttempt(this.loginAttemptTracker.getAttempts(entity.getUsername(), storedAttempts));
+		// A wrong password for an existing user counts towards its lockout
+		if (!credentials.matches) {
+			this.loginAttemptTracker.recordFailure(entity.getUsername(), storedAttempts);
+			this.credentialFailures.increment();
+			throw new InvalidUsernameOrPasswordException();
+		}
 		// Validate user credentials
 		if (!this.passwordManager.validateLogin(userBoundary, entity)) {
-			// login failed, saving changes
-			entity.setNumberOfLoginAttempt(entity.getNumberOfLoginAttempt() + 1);
-			updateUser(entity);
+			this.loginAttemptTracker.recordFailure(entity.getUsername(), storedAttempts);
+			this.rejectedLogins.increment();
 			throw new InvalidUsernameOrPasswordException();
 		}
-		// login succeeded, saving changes
-		entity.setNumberOfLoginAttempt(0);
-		updateUser(entity);
+		this.loginAttemptTracker.recordSuccess(entity.getUsername());
+		rehashIfOutdated(entity, userBoundary.getPassword());
 		return UserBoundaryBase.builder().username(userBoundary.getUsername()).build();
 	}
 
 	@Override
 	public UserBoundaryBase changePassword(UserBoundaryPasswordChange userBoundary) {
 		UserEntity entity = findByUsername(userBoundary.getUsername());
+		entity.setNumberOfLoginAttempt(
+				this.loginAttemptTracker.getAttempts(entity.getUsername(), entity.getNumberOfLoginAttempt()));
 		// Check if password entered is correct
 		if (!this.passwordManager.validateLogin(userBoundary, entity)) {
 			throw new InvalidPasswordException("Password entered does not match");
@@ -130,7 +249,7 @@ public class UserServiceImpl implements UserService {
 		if (!this.passwordManager.validatePasswordForChangePassword(userBoundary, entity)) {
 			throw new InvalidPasswordException("New password is not valid");
 		}
-		return resetUserPassword(userBoundary, entity);
+		return resetUserPassword(userBoundary, entity, HashingPriority.CHANGE_PASSWORD);
 
 	}
 
@@ -141,42 +260,201 @@ public class UserServiceImpl implements UserService {
 				.userWithOldAndNewPasswordsBuilder().username(userBoundary.getUsername())
 				.password(userBoundary.getUsername()).newPassword(this.passwordManager.generateRandomPassword())
 				.build();
-		resetUserPassword(userBoundaryPasswordChange, userEntity);
-		this.emailService.sendResetPasswordMail(userEntity.getEmail(), Constants.RESET_PASSWORD,
-				userBoundaryPasswordChange.getNewPassword());
+		// The mail is queued in the same transaction as the reset and sent by the outbox workers
+		this.transactionTemplate = new TransactionTemplate(this.transactionManager);
+		this.performanceMonitor.record(Phase.TRANSACTION, "forgotPassword", userEntity.getUsername(),
+				() -> this.transactionTemplate.execute(transactionStatus -> {
+			resetUserPassword(userBoundaryPasswordChange, userEntity, HashingPriority.FORGOT_PASSWORD);
+			this.emailService.enqueueResetPasswordMail(userEntity.getEmail(), Constants.RESET_PASSWORD,
+					userBoundaryPasswordChange.getNewPassword());
+			return null;
+		}));
 		return userBoundaryPasswordChange;
 	}
 
 	@Override
-	public UserBoundaryBase[] getAll() {
-		return userRepository.findAll(PageRequest.of(0, 10, Direction.ASC, "username")).getContent().stream()
-				.map(entity -> new UserBoundaryBase(entity.getUsername())).collect(Collectors.toList())
-				.toArray(new UserBoundaryBase[0]);
+	public void addUsers(InputStream inputStream, OutputStream outputStream) throws IOException {
+		int chunkSize = this.generalConfig.getBulkChunkSize() > 0 ? this.generalConfig.getBulkChunkSize()
+				: BulkInserter.DEFAULT_CHUNK_SIZE;
+		JsonRowReader rowReader = new JsonRowReader(this.objectMapper, inputStream);
+		try (BulkReportWriter report = new BulkReportWriter(this.objectMapper, outputStream)) {
+			List<BulkUser> chunk = new ArrayList<>(chunkSize);
+			// At most one chunk is hashed while the next one is read, so memory stays at about two chunks
+			ForkJoinTask<List<BulkUser>> hashing = null;
+			long index = 0;
+			try {
+				JsonNode row;
+				while ((row = rowReader.next()) != null) {
+					BulkUser bulkUser = new BulkUser(index++);
+					try {
+						bulkUser.boundary = rowReader.convert(row, UserBoundarySignup.class);
+						chunk.add(bulkUser);
+					} catch (JsonProcessingException e) {
+						report.row(bulkUser.index, null, BulkRowStatus.INVALID, e.getOriginalMessage());
+					}
+					if (chunk.size() == chunkSize) {
+						hashing = nextChunk(hashing, chunk, report);
+						chunk = new ArrayList<>(chunkSize);
+					}
+				}
+			} catch (JsonProcessingException e) {
+				// The rest of the body cannot be parsed, the rows read so far are still inserted
+				report.row(index, null, BulkRowStatus.INVALID, "Malformed input, stopped reading: " + e.getOriginalMessage());
+			}
+			hashing = nextChunk(hashing, chunk, report);
+			if (hashing != null) {
+				insertUsers(hashing.join(), report);
+			}
+		}
+	}
+
+	// Starts hashing the chunk and inserts the previous one meanwhile
+	private ForkJoinTask<List<BulkUser>> nextChunk(ForkJoinTask<List<BulkUser>> previous, List<BulkUser> chunk,
+			BulkReportWriter report) throws IOException {
+		List<BulkUser> newUsers = removeExistingUsers(chunk, report);
+		ForkJoinTask<List<BulkUser>> hashing = newUsers.isEmpty() ? null
+				: this.bulkPool.submit(() -> newUsers.parallelStream().map(this::prepareUser)
+						.collect(Collectors.toList()));
+		if (previous != null) {
+			insertUsers(previous.join(), report);
+		}
+		return hashing;
+	}
+
+	// Skips the PBKDF2 work for usernames that are taken, with one query for the whole chunk
+	private List<BulkUser> removeExistingUsers(List<BulkUser> chunk, BulkReportWriter report) throws IOException {
+		Set<String> taken = this.bulkInserter.selectExisting(chunk.stream()
+				.map(bulkUser -> bulkUser.boundary.getUsername()).filter(Objects::nonNull).collect(Collectors.toList()));
+		List<BulkUser> newUsers = new ArrayList<>(chunk.size());
+		for (BulkUser bulkUser : chunk) {
+			String username = bulkUser.boundary.getUsername();
+			// add() also catches a username repeated inside the chunk
+			if (username == null || taken.add(username)) {
+				newUsers.add(bulkUser);
+			} else {
+				report.row(bulkUser.index, username, BulkRowStatus.DUPLICATE, null);
+			}
+		}
+		report.flush();
+		return newUsers;
+	}
+
+	// Runs on the bulk pool, never throws so one bad row does not stop the chunk
+	private BulkUser prepareUser(BulkUser bulkUser) {
+		UserBoundarySignup userBoundary = bulkUser.boundary;
+		try {
+			if (userBoundary.getUsername() == null || userBoundary.getUsername().trim().isEmpty()
+					|| userBoundary.getUsername().length() > BulkInserter.MAX_COLUMN_LENGTH) {
+				bulkUser.status = BulkRowStatus.INVALID;
+				bulkUser.message = "Username is not valid";
+			} else if (userBoundary.getEmail() == null
+					|| userBoundary.getEmail().length() > BulkInserter.MAX_COLUMN_LENGTH) {
+				bulkUser.status = BulkRowStatus.INVALID;
+				bulkUser.message = "Email is not valid";
+			} else if (!this.passwordManager.validatePasswordForSignup(userBoundary)) {
+				bulkUser.status = BulkRowStatus.INVALID;
+				bulkUser.message = "Password is not valid";
+			} else {
+				byte[] salt = new byte[SALT_BYTE_SIZE];
+				this.passwordManager.generateSaltValue(salt);
+				PasswordHash hash = this.passwordManager.hash(userBoundary.getPassword(),
+						this.passwordManager.newParameters(salt));
+				bulkUser.entity = newUserEntity(userBoundary, salt, hash);
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+			bulkUser.status = BulkRowStatus.FAILED;
+			bulkUser.message = "Something went wrong";
+		}
+		// The plain password is not needed anymore
+		bulkUser.boundary = null;
+		return bulkUser;
+	}
+
+	private void insertUsers(List<BulkUser> bulkUsers, BulkReportWriter report) throws IOException {
+		List<BulkUser> valid = new ArrayList<>(bulkUsers.size());
+		for (BulkUser bulkUser : bulkUsers) {
+			if (bulkUser.entity != null) {
+				valid.add(bulkUser);
+			} else {
+				report.row(bulkUser.index, null, bulkUser.status, bulkUser.message);
+			}
+		}
+		this.bulkInserter.insert(valid, (position, status, message) -> {
+			String username = valid.get(position).entity.getUsername();
+			if (status == BulkRowStatus.CREATED) {
+				this.usernameFilter.add(username);
+				this.readYourWritesTracker.recordWrite(WRITE_KEY_PREFIX + username);
+				// Clears the username remembered as missing
+				this.userCache.invalidate(username);
+			}
+			report.row(valid.get(position).index, username, status, message);
+		});
+		report.flush();
+	}
+
+	private void setUserParameters(PreparedStatement preparedStatement, BulkUser bulkUser) throws SQLException {
+		UserEntity userEntity = bulkUser.entity;
+		preparedStatement.setString(1, userEntity.getUsername());
+		preparedStatement.setTimestamp(2, new Timestamp(userEntity.getCreationTimestamp().getTime()));
+		preparedStatement.setString(3, userEntity.getEmail());
+		preparedStatement.setInt(4, userEntity.getNumberOfLoginAttempt());
+		preparedStatement.setBytes(5, userEntity.getPasswordHash());
+		preparedStatement.setBytes(6, userEntity.getPasswordSalt());
+		preparedStatement.setBytes(7, userEntity.getPasswordHistory());
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public PageBoundary<UserBoundaryBase> getAll(String cursor, int size) {
+		PageCursor.validateSize(size);
+		String after = cursor != null ? PageCursor.decode(cursor, 1)[0] : null;
+		TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+		transactionTemplate.setReadOnly(true);
+		// Seeks on the primary key and reads only the username, one extra row tells if there is a next page
+		List<String> usernames = transactionTemplate.execute(transactionStatus -> {
+			Query query = after == null
+					? this.entityManager.createNativeQuery("SELECT username FROM users ORDER BY username")
+					: this.entityManager
+							.createNativeQuery("SELECT username FROM users WHERE username > :after ORDER BY username")
+							.setParameter("after", after);
+			return this.performanceMonitor.record(Phase.QUERY, "users.page",
+					() -> (List<String>) query.setMaxResults(size + 1).getResultList());
+		});
+		boolean hasNext = usernames.size() > size;
+		List<UserBoundaryBase> items = usernames.stream().limit(size).map(UserBoundaryBase::new)
+				.collect(Collectors.toList());
+		return new PageBoundary<>(items, hasNext ? PageCursor.encode(usernames.get(size - 1)) : null);
+	}
+
+	@Override
+	public void export(ExportFormat format, OutputStream outputStream) throws IOException {
+		// Passwords, salts and the password history never leave the database
+		this.tableExporter.export("SELECT username, email, number_of_login_attempt, creation_timestamp FROM users",
+				format, outputStream, "username", "email", "numberOfLoginAttempt", "creationTimestamp");
 	}
 
 	@Override
 	public void deleteAll() {
 		this.userRepository.deleteAll();
+		this.userCache.invalidateAll();
 	}
 
-	private UserBoundaryBase resetUserPassword(UserBoundaryPasswordChange userBoundary, UserEntity entity) {
+	private UserBoundaryBase resetUserPassword(UserBoundaryPasswordChange userBoundary, UserEntity entity,
+			HashingPriority priority) {
 		try {
 			// Generate new hash
-			byte[] newHash = this.passwordManager.encrypt(userBoundary.getNewPassword(),
-					entity.getSalt().getBytes(PasswordManager.BYTE_CHARSET));
-			String newPassword = new String(newHash, PasswordManager.BYTE_CHARSET);
+			PasswordHash newHash = this.passwordManager.hash(userBoundary.getNewPassword(),
+					this.passwordManager.newParameters(this.passwordManager.getSalt(entity)), priority);
 			// Update old passwords list
-			List<String> oldPasswords = this.gson.fromJson(entity.getOldPasswords(), new TypeToken<List<String>>() {
-			}.getType());
-			if (oldPasswords.size() == this.passwordManager.getPasswordConfig().getHistory()) {
-				oldPasswords.remove(0);
-			}
-			oldPasswords.add(newPassword);
+			PasswordHistory passwordHistory = this.passwordManager.getPasswordHistory(entity)
+					.add(newHash, this.passwordManager.getPasswordConfig().getHistory());
 			// Save the changes
-			entity.setPassword(newPassword);
-			entity.setOldPasswords(this.gson.toJson(oldPasswords));
+			this.passwordManager.setStoredHash(entity, newHash);
+			entity.setPasswordHistory(passwordHistory.getData());
 			entity.setNumberOfLoginAttempt(0);
 			updateUser(entity);
+			this.loginAttemptTracker.reset(entity.getUsername());
 			return UserBoundaryBase.builder().username(userBoundary.getUsername()).build();
 		} catch (UnsupportedEncodingException | NoSuchAlgorithmException | InvalidKeySpecException e) {
 			e.printStackTrace();
@@ -184,16 +462,96 @@ public class UserServiceImpl implements UserService {
 		}
 	}
 
+	private void rehashIfOutdated(UserEntity entity, String plainPassword) {
+		try {
+			PasswordHash storedHash = this.passwordManager.getStoredHash(entity);
+			// Rows still on the string columns are moved to the binary ones with the same hash
+			boolean legacy = entity.getPasswordHash() == null;
+			boolean needsRehash = this.passwordManager.needsRehash(storedHash);
+			if (!legacy && !needsRehash) {
+				return;
+			}
+			// The row is only updated if the password did not change in the meantime
+			String sqlQueryAsString = "UPDATE users SET password_hash = :password_hash, password_salt = :password_salt,"
+					+ " password = NULL, salt = NULL WHERE username = :username"
+					+ (legacy ? " AND password = :old_password" : " AND password_hash = :old_password");
+			Object oldPassword = legacy ? entity.getPassword() : entity.getPasswordHash();
+			if (!needsRehash) {
+				// Nothing to compute, the columns are moved without going through the hashing pool
+				this.rehashWriter.execute(() -> storeRehash(entity.getUsername(), sqlQueryAsString, storedHash,
+						oldPassword));
+				return;
+			}
+			// Best effort, dropped when the hashing queue is full and retried on the next login. Only the hash
+			// runs on the hashing pool, the write is handed to the writer thread
+			this.passwordManager.submit(HashingPriority.REHASH, () -> {
+				try {
+					PasswordHash newHash = this.passwordManager.hash(plainPassword,
+							this.passwordManager.newParameters(storedHash.getSalt()));
+					this.rehashWriter.execute(() -> storeRehash(entity.getUsername(), sqlQueryAsString, newHash,
+							oldPassword));
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			});
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void storeRehash(String username, String sqlQueryAsString, PasswordHash newHash, Object oldPassword) {
+		try {
+			byte[] encodedHash = newHash.encodeStored();
+			new TransactionTemplate(this.transactionManager).execute(transactionStatus -> {
+				Query query = this.entityManager.createNativeQuery(sqlQueryAsString)
+						.setParameter("password_hash", encodedHash)
+						.setParameter("password_salt", newHash.getSalt())
+						.setParameter("username", username)
+						.setParameter("old_password", oldPassword);
+				return this.performanceMonitor.record(Phase.QUERY, "users.rehash", username, query::executeUpdate);
+			});
+			this.readYourWritesTracker.recordWrite(WRITE_KEY_PREFIX + username);
+			this.userCache.invalidate(username);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
 	private boolean isUsernameExists(String username) {
 		try {
-			return findByUsername(username) != null;
+			// A username the filter never saw is certainly free, no need to read the table
+			if (this.generalConfig.isSecure() && !this.usernameFilter.mightContain(username)) {
+				return false;
+			}
+			return getUser(username) != null;
 		} catch (Exception ex) {
 			return false;
 		}
 	}
 
 	private UserEntity findByUsername(String username) {
+		UserEntity entity;
 		try {
+			entity = getUser(username);
+		} catch (Exception ex) {
+			throw new InvalidUsernameOrPasswordException();
+		}
+		if (entity == null) {
+			throw new InvalidUsernameOrPasswordException();
+		}
+		return entity;
+	}
+
+	// Only the secure lookup is cached, the other one takes the username as raw SQL. A cached row is read from
+	// the primary, a lagging replica would otherwise keep serving the old row until the TTL
+	private UserEntity getUser(String username) {
+		return this.generalConfig.isSecure() ? this.userCache.get(username, key -> selectUser(key, true))
+				: selectUser(username, false);
+	}
+
+	// null when the user does not exist
+	private UserEntity selectUser(String username, boolean primary) {
+		return lookup(username, primary, transactionStatus -> {
 			Query query;
 			if (this.generalConfig.isSecure()) {
 				String sqlQueryAsString = "SELECT * FROM users WHERE username = :username";
@@ -203,110 +561,199 @@ public class UserServiceImpl implements UserService {
 				String sqlQueryAsString = "SELECT * FROM users WHERE username = '" + username + "'";
 				query = this.entityManager.createNativeQuery(sqlQueryAsString, UserEntity.class);
 			}
-			return (UserEntity) query.getResultList().get(0);
-		} catch (Exception ex) {
-			throw new InvalidUsernameOrPasswordException();
-		}
+			List<?> users = this.performanceMonitor.record(Phase.QUERY, "users.select", username,
+					query::getResultList);
+			return users.isEmpty() ? null : (UserEntity) users.get(0);
+		});
 	}
 
-	private UserEntity findByUsernameAndPassword(UserBoundaryBaseWithPassword boundary) {
+	// Throws when the user does not exist, a wrong password comes back as credentials that do not match
+	private Credentials findCredentials(UserBoundaryBaseWithPassword boundary) {
 		try {
-			Query query;
-			String sqlQueryAsString;
-			// Check if user exists first
+			// One query for the row, the hash is compared here
 			UserEntity userEntity = findByUsername(boundary.getUsername());
-			// Validating the users password
-			String password = new String(
-					this.passwordManager.encrypt(boundary.getPassword(), userEntity.getSalt().getBytes("ISO-8859-1")),
-					"ISO-8859-1");
+			// Validating the users password with the parameters it was stored with
+			PasswordHash storedHash = this.passwordManager.getStoredHash(userEntity);
+			PasswordHash passwordHash = this.passwordManager.hash(boundary.getPassword(), storedHash,
+					HashingPriority.LOGIN);
 			if (this.generalConfig.isSecure()) {
-				sqlQueryAsString = "SELECT * FROM users WHERE username = :username AND password = :password";
-				query = this.entityManager.createNativeQuery(sqlQueryAsString, UserEntity.class)
-						.setParameter("username", userEntity.getUsername()).setParameter("password", password);
-			} else {
-				sqlQueryAsString = "SELECT * FROM users WHERE username = '" + boundary.getUsername()
-						+ "' AND password = :password";
-				query = this.entityManager.createNativeQuery(sqlQueryAsString, UserEntity.class)
-						.setParameter("password", password);
+				return new Credentials(userEntity, passwordHash.matches(storedHash));
 			}
-			return (UserEntity) query.getResultList().get(0);
+			// Not secure keeps comparing in SQL with the username as typed
+			boolean legacy = userEntity.getPasswordHash() == null;
+			Object password = legacy ? this.passwordManager.encode(passwordHash) : passwordHash.encodeStored();
+			List<?> matching = lookup(userEntity.getUsername(), false, transactionStatus -> {
+				String sqlQueryAsString = "SELECT * FROM users WHERE username = '" + boundary.getUsername() + "' AND "
+						+ (legacy ? "password" : "password_hash") + " = :password";
+				Query query = this.entityManager.createNativeQuery(sqlQueryAsString, UserEntity.class)
+						.setParameter("password", password);
+				return this.performanceMonitor.record(Phase.QUERY, "users.selectByPassword", userEntity.getUsername(),
+						query::getResultList);
+			});
+			return matching.isEmpty() ? new Credentials(userEntity, false)
+					: new Credentials((UserEntity) matching.get(0), true);
+		} catch (ServiceOverloadedException | InvalidUsernameOrPasswordException ex) {
+			throw ex;
 		} catch (Exception ex) {
 			ex.printStackTrace();
 			throw new InvalidUsernameOrPasswordException();
 		}
 	}
 
+	// Read-only so a replica can serve it, unless the user was written too recently for the replicas to have it
+	private <T> T lookup(String username, boolean primary, TransactionCallback<T> action) {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+		transactionTemplate.setReadOnly(
+				!primary && !this.readYourWritesTracker.isRecentlyWritten(WRITE_KEY_PREFIX + username));
+		return this.performanceMonitor.record(Phase.TRANSACTION, "lookup", username,
+				() -> transactionTemplate.execute(action));
+	}
+
 	@Transactional
 	private void updateUser(UserEntity userEntity) {
+		int dirtyFields = userEntity.getDirtyFields();
+		if (dirtyFields == 0) {
+			return;
+		}
 		try {
+			// One statement text per combination of changed columns, so the prepared statement caches reuse them
+			String sqlQueryAsString = this.updateStatements.computeIfAbsent(dirtyFields, this::buildUpdateStatement);
 			this.transactionTemplate = new TransactionTemplate(this.transactionManager);
-			this.transactionTemplate.execute(transactionStatus -> {
-				String sqlQueryAsString;
-				Query query;
-//				if (this.generalConfig.isSecure()) {
-				sqlQueryAsString = "UPDATE users SET number_of_login_attempt = :number_of_login_attempt, password = :password, "
-						+ "old_passwords = :old_passwords WHERE username = :username";
-				query = this.entityManager.createNativeQuery(sqlQueryAsString, UserEntity.class)
-						.setParameter("number_of_login_attempt", userEntity.getNumberOfLoginAttempt())
-						.setParameter("password", userEntity.getPassword())
-						.setParameter("old_passwords", userEntity.getOldPasswords())
+			this.performanceMonitor.record(Phase.TRANSACTION, "updateUser", userEntity.getUsername(),
+					() -> this.transactionTemplate.execute(transactionStatus -> {
+				Query query = this.entityManager.createNativeQuery(sqlQueryAsString, UserEntity.class)
 						.setParameter("username", userEntity.getUsername());
-//				} else {
-//					sqlQueryAsString = "UPDATE users SET number_of_login_attempt = "
-//							+ userEntity.getNumberOfLoginAttempt() + ", " + "password = '" + userEntity.getPassword()
-//							+ "', " + "old_passwords = '" + userEntity.getOldPasswords() + "' WHERE username = '"
-//							+ userEntity.getUsername() + "'";
-//					query = this.entityManager.createNativeQuery(sqlQueryAsString, UserEntity.class);
-//				}
-				query.executeUpdate();
+				// Typed, password and salt are null once the row moved to the binary columns
+				if ((dirtyFields & UserEntity.DIRTY_PASSWORD) != 0) {
+					query.setParameter("password",
+							new TypedParameterValue(StringType.INSTANCE, userEntity.getPassword()));
+				}
+				if ((dirtyFields & UserEntity.DIRTY_SALT) != 0) {
+					query.setParameter("salt", new TypedParameterValue(StringType.INSTANCE, userEntity.getSalt()));
+				}
+				if ((dirtyFields & UserEntity.DIRTY_EMAIL) != 0) {
+					query.setParameter("email", userEntity.getEmail());
+				}
+				if ((dirtyFields & UserEntity.DIRTY_NUMBER_OF_LOGIN_ATTEMPT) != 0) {
+					query.setParameter("number_of_login_attempt", userEntity.getNumberOfLoginAttempt());
+				}
+				if ((dirtyFields & UserEntity.DIRTY_OLD_PASSWORDS) != 0) {
+					query.setParameter("old_passwords",
+							new TypedParameterValue(StringType.INSTANCE, userEntity.getOldPasswords()));
+				}
+				if ((dirtyFields & UserEntity.DIRTY_PASSWORD_HISTORY) != 0) {
+					query.setParameter("password_history", userEntity.getPasswordHistory());
+				}
+				if ((dirtyFields & UserEntity.DIRTY_PASSWORD_HASH) != 0) {
+					query.setParameter("password_hash", userEntity.getPasswordHash());
+				}
+				if ((dirtyFields & UserEntity.DIRTY_PASSWORD_SALT) != 0) {
+					query.setParameter("password_salt", userEntity.getPasswordSalt());
+				}
+				this.performanceMonitor.record(Phase.QUERY, "users.update", userEntity.getUsername(),
+						query::executeUpdate);
 				transactionStatus.flush();
 				return null;
-			});
+			}));
+			userEntity.clearDirtyFields();
+			this.readYourWritesTracker.recordWrite(WRITE_KEY_PREFIX + userEntity.getUsername());
+			this.userCache.invalidate(userEntity.getUsername());
 		} catch (Exception ex) {
 			ex.printStackTrace();
 			throw new InternalErrorException("Something went wrong");
 		}
 	}
 
+	private String buildUpdateStatement(int dirtyFields) {
+		List<String> assignments = new ArrayList<>();
+		for (int i = 0; i < UPDATABLE_COLUMNS.length; i++) {
+			if ((dirtyFields & (1 << i)) != 0) {
+				assignments.add(UPDATABLE_COLUMNS[i] + " = :" + UPDATABLE_COLUMNS[i]);
+			}
+		}
+		return "UPDATE users SET " + String.join(", ", assignments) + " WHERE username = :username";
+	}
+
 	@Transactional
 	private void saveUser(UserEntity userEntity) {
 		try {
 			this.transactionTemplate = new TransactionTemplate(this.transactionManager);
-			this.transactionTemplate.execute(transactionStatus -> {
+			this.performanceMonitor.record(Phase.TRANSACTION, "saveUser", userEntity.getUsername(),
+					() -> this.transactionTemplate.execute(transactionStatus -> {
 				String sqlQueryAsString;
 				Query query;
 				if (this.generalConfig.isSecure()) {
-					sqlQueryAsString = "INSERT INTO users (username, creation_timestamp, email, number_of_login_attempt, password, salt, old_passwords)"
-							+ " VALUES(:username, :creation_timestamp, :email, :number_of_login_attempt, :password, :salt, :old_passwords)";
+					sqlQueryAsString = "INSERT INTO users (username, creation_timestamp, email, number_of_login_attempt, password_hash, password_salt, password_history)"
+							+ " VALUES(:username, :creation_timestamp, :email, :number_of_login_attempt, :password_hash, :password_salt, :password_history)";
 					query = this.entityManager.createNativeQuery(sqlQueryAsString, UserEntity.class)
 							.setParameter("username", userEntity.getUsername())
 							.setParameter("creation_timestamp", userEntity.getCreationTimestamp())
 							.setParameter("email", userEntity.getEmail())
 							.setParameter("number_of_login_attempt", userEntity.getNumberOfLoginAttempt())
-							.setParameter("password", userEntity.getPassword())
-							.setParameter("salt", userEntity.getSalt())
-							.setParameter("old_passwords", userEntity.getOldPasswords());
+							.setParameter("password_hash", userEntity.getPasswordHash())
+							.setParameter("password_salt", userEntity.getPasswordSalt())
+							.setParameter("password_history", userEntity.getPasswordHistory());
 
 				} else {
-					sqlQueryAsString = "INSERT INTO users (username, creation_timestamp, email, number_of_login_attempt, password, salt, old_passwords)"
+					sqlQueryAsString = "INSERT INTO users (username, creation_timestamp, email, number_of_login_attempt, password_hash, password_salt, password_history)"
 							+ " VALUES('" + userEntity.getUsername()
-							+ "', :creation_timestamp, :email, :number_of_login_attempt, :password, :salt, :old_passwords)";
+							+ "', :creation_timestamp, :email, :number_of_login_attempt, :password_hash, :password_salt, :password_history)";
 					query = this.entityManager.createNativeQuery(sqlQueryAsString, UserEntity.class)
 							.setParameter("creation_timestamp", userEntity.getCreationTimestamp())
 							.setParameter("number_of_login_attempt", userEntity.getNumberOfLoginAttempt())
-							.setParameter("password", userEntity.getPassword())
-							.setParameter("salt", userEntity.getSalt())
-							.setParameter("old_passwords", userEntity.getOldPasswords())
+							.setParameter("password_hash", userEntity.getPasswordHash())
+							.setParameter("password_salt", userEntity.getPasswordSalt())
+							.setParameter("password_history", userEntity.getPasswordHistory())
 							.setParameter("username", userEntity.getUsername());
 				}
-				query.executeUpdate();
+				this.performanceMonitor.record(Phase.QUERY, "users.insert", userEntity.getUsername(),
+						query::executeUpdate);
 				transactionStatus.flush();
 				return null;
-			});
+			}));
+			this.usernameFilter.add(userEntity.getUsername());
+			this.readYourWritesTracker.recordWrite(WRITE_KEY_PREFIX + userEntity.getUsername());
+			this.userCache.invalidate(userEntity.getUsername());
 		} catch (Exception ex) {
+			// Taken on another node after this node's username filter was last told about it
+			if (isDuplicateKey(ex)) {
+				throw new InvalidUsernameOrPasswordException("Something went wrong");
+			}
 			ex.printStackTrace();
 			throw new InternalErrorException("Something went wrong");
 		}
 	}
 
+	private static boolean isDuplicateKey(Throwable exception) {
+		for (Throwable cause = exception; cause != null; cause = cause.getCause()) {
+			if (cause instanceof SQLIntegrityConstraintViolationException
+					|| cause instanceof ConstraintViolationException) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static final class Credentials {
+		private final UserEntity entity;
+		private final boolean matches;
+
+		private Credentials(UserEntity entity, boolean matches) {
+			this.entity = entity;
+			this.matches = matches;
+		}
+	}
+
+	private static final class BulkUser {
+		private final long index;
+		private UserBoundarySignup boundary;
+		private UserEntity entity;
+		private BulkRowStatus status;
+		private String message;
+
+		private BulkUser(long index) {
+			this.index = index;
+		}
+	}
+
 }
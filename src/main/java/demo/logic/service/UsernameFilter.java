@@ -0,0 +1,228 @@
+package demo.logic.service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import demo.config.CacheConfig;
+import demo.config.DBConfig;
+import demo.config.Permission;
+import demo.logic.service.interfaces.CacheInvalidationBus;
+import demo.logic.utilities.BloomFilter;
+import demo.logic.utilities.XMLReader;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * A Bloom filter of every username, so a signup with a new username does not
+ * have to read the users table to find out.
+ *
+ * It is filled by a scan of the table in the background after startup, until
+ * then every username may exist. New users are added on insert, on this node
+ * directly and on the others through the {@link CacheInvalidationBus}, so
+ * another node only learns of a new username on its next invalidation poll. A
+ * signup there in between passes the filter and is stopped by the primary key
+ * of the users table. Deleted users stay in the filter, which only costs a
+ * read.
+ *
+ * When usernameFilterFile is set the filter is saved there after the scan and
+ * on shutdown, and a restart only scans the users created since. The file
+ * records the database it was built from and the newest user it contains, and
+ * is ignored when either no longer matches, as after pointing the node at
+ * another database or restoring an older backup.
+ */
+@Service
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class UsernameFilter {
+	private static final int DEFAULT_EXPECTED_USERS = 1_000_000;
+	private static final double FALSE_POSITIVE_RATE = 0.01;
+	private static final int DEFAULT_FETCH_SIZE = 1000;
+	private static final int FILE_VERSION = 2;
+	// Users are timestamped before their insert commits, the rescan goes back this far
+	private static final long CATCH_UP_MARGIN = TimeUnit.MINUTES.toMillis(1);
+	private @NonNull XMLReader xmlReader;
+	private @NonNull JdbcTemplate jdbcTemplate;
+	private @NonNull PlatformTransactionManager transactionManager;
+	private @NonNull CacheInvalidationBus cacheInvalidationBus;
+	private volatile BloomFilter filter;
+	private volatile boolean ready;
+
+	@EventListener(ApplicationReadyEvent.class)
+	private void init() {
+		CacheConfig cacheConfig = getCacheConfig();
+		long expectedUsers = cacheConfig.getUsernameFilterExpectedUsers() > 0
+				? cacheConfig.getUsernameFilterExpectedUsers()
+				: DEFAULT_EXPECTED_USERS;
+		long scanFrom = 0;
+		BloomFilter filter = null;
+		Path file = getFile();
+		if (file != null && Files.exists(file)) {
+			try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+				if (input.readInt() == FILE_VERSION && input.readUTF().equals(getDatabaseIdentity())) {
+					String newestUser = input.readUTF();
+					long newestTimestamp = input.readLong();
+					BloomFilter saved = BloomFilter.readFrom(input);
+					if (saved.hasSameSize(expectedUsers, FALSE_POSITIVE_RATE)
+							&& isNewestUserPresent(newestUser, newestTimestamp)) {
+						filter = saved;
+						scanFrom = newestTimestamp - CATCH_UP_MARGIN;
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				// Rebuilt from the table below
+				e.printStackTrace();
+			}
+		}
+		this.filter = filter != null ? filter : BloomFilter.create(expectedUsers, FALSE_POSITIVE_RATE);
+		this.cacheInvalidationBus.subscribe((cacheName, keys) -> {
+			if (UserCache.NAME.equals(cacheName) && keys != null) {
+				keys.forEach(this::add);
+			}
+		});
+		long since = scanFrom;
+		Thread loader = new Thread(() -> {
+			try {
+				NewestUser newestUser = getNewestUser();
+				scan(since);
+				this.ready = true;
+				save(newestUser);
+			} catch (Exception e) {
+				// Stays not ready, every username goes to the table
+				e.printStackTrace();
+			}
+		}, "username-filter-loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+
+	@PreDestroy
+	public void close() {
+		if (this.ready) {
+			save(getNewestUser());
+		}
+	}
+
+	public void add(String username) {
+		BloomFilter filter = this.filter;
+		if (filter != null) {
+			filter.add(username);
+		}
+	}
+
+	// false only when the username certainly does not exist
+	public boolean mightContain(String username) {
+		return !this.ready || this.filter.mightContain(username);
+	}
+
+	private void scan(long since) {
+		DBConfig dbConfig = this.xmlReader.loadConfigFile().getConfiguration(Permission.DB, DBConfig.class);
+		int fetchSize = dbConfig.getFetchSize() > 0 ? dbConfig.getFetchSize() : DEFAULT_FETCH_SIZE;
+		BloomFilter filter = this.filter;
+		TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+		transactionTemplate.setReadOnly(true);
+		transactionTemplate.execute(transactionStatus -> {
+			this.jdbcTemplate.query(connection -> {
+				PreparedStatement statement = connection.prepareStatement(
+						since > 0 ? "SELECT username FROM users WHERE creation_timestamp >= ?"
+								: "SELECT username FROM users",
+						ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				statement.setFetchSize(fetchSize);
+				if (since > 0) {
+					statement.setTimestamp(1, new Timestamp(since));
+				}
+				return statement;
+			}, resultSet -> {
+				filter.add(resultSet.getString(1));
+			});
+			return null;
+		});
+	}
+
+	// Written aside and moved over the old file, a crash never leaves half a filter
+	private void save(NewestUser newestUser) {
+		Path file = getFile();
+		if (file == null) {
+			return;
+		}
+		try {
+			Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+			try (DataOutputStream output = new DataOutputStream(
+					new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+				output.writeInt(FILE_VERSION);
+				output.writeUTF(getDatabaseIdentity());
+				output.writeUTF(newestUser.username);
+				output.writeLong(newestUser.timestamp);
+				this.filter.writeTo(output);
+			}
+			Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException | RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// The URL and schema of the primary the filter was built from
+	private String getDatabaseIdentity() {
+		return this.jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getURL()
+				+ "/" + connection.getCatalog());
+	}
+
+	// The high-water mark of the filter, read before the users it covers. An empty table gives an empty username
+	private NewestUser getNewestUser() {
+		List<NewestUser> newest = this.jdbcTemplate.query(
+				"SELECT username, creation_timestamp FROM users WHERE creation_timestamp IS NOT NULL"
+						+ " ORDER BY creation_timestamp DESC, username DESC LIMIT 1",
+				(resultSet, rowNumber) -> new NewestUser(resultSet.getString(1), resultSet.getTimestamp(2).getTime()));
+		return newest.isEmpty() ? new NewestUser("", 0) : newest.get(0);
+	}
+
+	private boolean isNewestUserPresent(String username, long timestamp) {
+		if (username.isEmpty()) {
+			return true;
+		}
+		List<Timestamp> timestamps = this.jdbcTemplate.queryForList(
+				"SELECT creation_timestamp FROM users WHERE username = ?", Timestamp.class, username);
+		return !timestamps.isEmpty() && timestamps.get(0) != null && timestamps.get(0).getTime() == timestamp;
+	}
+
+	private Path getFile() {
+		String file = getCacheConfig().getUsernameFilterFile();
+		return file != null && !file.trim().isEmpty() ? Paths.get(file.trim()) : null;
+	}
+
+	private CacheConfig getCacheConfig() {
+		return this.xmlReader.loadConfigFile().getConfiguration(Permission.CACHE, CacheConfig.class);
+	}
+
+	private static final class NewestUser {
+		private final String username;
+		private final long timestamp;
+
+		private NewestUser(String username, long timestamp) {
+			this.username = username;
+			this.timestamp = timestamp;
+		}
+	}
+
+}
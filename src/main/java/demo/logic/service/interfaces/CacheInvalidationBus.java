@@ -0,0 +1,16 @@
+package demo.logic.service.interfaces;
+
+import java.util.Collection;
+import java.util.function.BiConsumer;
+
+/**
+ * Carries cache invalidations to the other nodes. A node does not receive its
+ * own invalidations back.
+ */
+public interface CacheInvalidationBus {
+
+	// null keys clears the whole cache
+	void publish(String cacheName, Collection<String> keys);
+
+	void subscribe(BiConsumer<String, Collection<String>> listener);
+}
@@ -1,13 +1,23 @@
 package demo.logic.service.interfaces;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 import demo.boundary.ClientBoundaryAddNewClient;
 import demo.boundary.ClientBoundaryBase;
+import demo.boundary.PageBoundary;
+import demo.logic.utilities.ExportFormat;
 
 public interface ClientService {
 	
 	ClientBoundaryBase addNewClient(ClientBoundaryAddNewClient clientBoundary);
+
+	void addClients(InputStream inputStream, OutputStream outputStream) throws IOException;
 	
-	ClientBoundaryBase[] getAll();
+	PageBoundary<ClientBoundaryBase> getAll(String cursor, int size);
+
+	void export(ExportFormat format, OutputStream outputStream) throws IOException;
 
 	void deleteAll();
 	
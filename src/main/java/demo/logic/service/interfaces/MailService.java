@@ -5,4 +5,6 @@ public interface MailService {
 	void sendMail(String to, String subject, String body);
 
 	void sendResetPasswordMail(String to, String subject, String newPassword);
+
+	void enqueueResetPasswordMail(String to, String subject, String newPassword);
 }
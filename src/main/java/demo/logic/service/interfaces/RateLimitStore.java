@@ -0,0 +1,11 @@
+package demo.logic.service.interfaces;
+
+/**
+ * Holds the token buckets of the rate limiter. Nodes sharing a store share
+ * their limits.
+ */
+public interface RateLimitStore {
+
+	// Takes a token from the bucket of the key, 0 when there was one or else the milliseconds until there is
+	long tryAcquire(String key, int burst, long refillIntervalMillis);
+}
@@ -0,0 +1,19 @@
+package demo.logic.service.interfaces;
+
+import demo.boundary.ClientBoundaryAddNewClient;
+import demo.boundary.ClientBoundaryBase;
+import demo.boundary.PageBoundary;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReactiveClientService {
+
+	Mono<ClientBoundaryBase> addNewClient(ClientBoundaryAddNewClient clientBoundary);
+
+	Mono<PageBoundary<ClientBoundaryBase>> getAll(String cursor, int size);
+
+	Flux<ClientBoundaryBase> streamAll();
+
+	Mono<Void> deleteAll();
+
+}
@@ -1,21 +1,31 @@
 package demo.logic.service.interfaces;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import demo.boundary.PageBoundary;
 import demo.boundary.UserBoundaryBase;
 import demo.boundary.UserBoundaryBaseWithPassword;
 import demo.boundary.UserBoundaryPasswordChange;
 import demo.boundary.UserBoundarySignup;
+import demo.logic.utilities.ExportFormat;
 
 public interface UserService {
 
 	UserBoundaryBase signup(UserBoundarySignup userBoundary);
 
+	void addUsers(InputStream inputStream, OutputStream outputStream) throws IOException;
+
 	UserBoundaryBase login(UserBoundaryBaseWithPassword userBoundary);
 
 	UserBoundaryBase changePassword(UserBoundaryPasswordChange userBoundary);
 	
 	UserBoundaryBase forgotPassword(UserBoundaryBase userBoundary);
 	
-	UserBoundaryBase[] getAll();
+	PageBoundary<UserBoundaryBase> getAll(String cursor, int size);
+
+	void export(ExportFormat format, OutputStream outputStream) throws IOException;
 
 	void deleteAll();
 
@@ -0,0 +1,108 @@
+package demo.logic.utilities;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A Bloom filter of strings that threads may add to and query at the same
+ * time without locking. mightContain never answers false for a string that
+ * was added, and answers true for one that was not with about the false
+ * positive rate it was sized for.
+ */
+public class BloomFilter {
+	private static final int FORMAT_VERSION = 1;
+	private final AtomicLongArray words;
+	private final long bitCount;
+	private final int hashCount;
+
+	private BloomFilter(AtomicLongArray words, int hashCount) {
+		this.words = words;
+		this.bitCount = (long) words.length() * Long.SIZE;
+		this.hashCount = hashCount;
+	}
+
+	public static BloomFilter create(long expectedInsertions, double falsePositiveRate) {
+		int wordCount = wordCount(expectedInsertions, falsePositiveRate);
+		int hashCount = (int) Math.max(1, Math.round((double) wordCount * Long.SIZE / expectedInsertions * Math.log(2)));
+		return new BloomFilter(new AtomicLongArray(wordCount), hashCount);
+	}
+
+	public static BloomFilter readFrom(DataInputStream input) throws IOException {
+		if (input.readInt() != FORMAT_VERSION) {
+			throw new IOException("Unknown Bloom filter format");
+		}
+		int hashCount = input.readInt();
+		AtomicLongArray words = new AtomicLongArray(input.readInt());
+		for (int i = 0; i < words.length(); i++) {
+			words.set(i, input.readLong());
+		}
+		return new BloomFilter(words, hashCount);
+	}
+
+	public void writeTo(DataOutputStream output) throws IOException {
+		output.writeInt(FORMAT_VERSION);
+		output.writeInt(this.hashCount);
+		output.writeInt(this.words.length());
+		for (int i = 0; i < this.words.length(); i++) {
+			output.writeLong(this.words.get(i));
+		}
+	}
+
+	// Whether create would make a filter of the same size, a saved filter of another size is rebuilt
+	public boolean hasSameSize(long expectedInsertions, double falsePositiveRate) {
+		return wordCount(expectedInsertions, falsePositiveRate) == this.words.length();
+	}
+
+	public void add(String value) {
+		long hash = hash(value);
+		long step = mix(hash) | 1;
+		for (int i = 0; i < this.hashCount; i++) {
+			long bit = Long.remainderUnsigned(hash + i * step, this.bitCount);
+			int index = (int) (bit >>> 6);
+			long mask = 1L << bit;
+			long word;
+			do {
+				word = this.words.get(index);
+			} while ((word & mask) == 0 && !this.words.compareAndSet(index, word, word | mask));
+		}
+	}
+
+	public boolean mightContain(String value) {
+		long hash = hash(value);
+		long step = mix(hash) | 1;
+		for (int i = 0; i < this.hashCount; i++) {
+			long bit = Long.remainderUnsigned(hash + i * step, this.bitCount);
+			if ((this.words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static int wordCount(long expectedInsertions, double falsePositiveRate) {
+		long bits = (long) Math.ceil(-expectedInsertions * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+		return (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bits + Long.SIZE - 1) / Long.SIZE));
+	}
+
+	// FNV-1a over the chars, no bytes are allocated
+	private static long hash(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		return mix(hash);
+	}
+
+	private static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return value;
+	}
+
+}
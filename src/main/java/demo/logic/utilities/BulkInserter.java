@@ -0,0 +1,105 @@
+package demo.logic.utilities;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import demo.boundary.BulkRowStatus;
+import demo.logic.utilities.PerformanceMonitor.Phase;
+
+/**
+ * Inserts the chunks of the bulk endpoints. One query finds the keys of a
+ * chunk that are taken and one batch inserts the rest. When the batch fails,
+ * usually because a key was inserted by someone else in the meantime, the
+ * rows are inserted one by one to find the offending ones.
+ *
+ * Queries are timed as {@code <table>.selectExisting},
+ * {@code <table>.batchInsert} and {@code <table>.insert}.
+ */
+public class BulkInserter<T> {
+	public static final int DEFAULT_CHUNK_SIZE = 500;
+	public static final int MAX_COLUMN_LENGTH = 255;
+	private final JdbcTemplate jdbcTemplate;
+	private final PlatformTransactionManager transactionManager;
+	private final PerformanceMonitor performanceMonitor;
+	private final String table;
+	private final String keyColumn;
+	private final String insertSql;
+	private final ParameterizedPreparedStatementSetter<T> parameterSetter;
+
+	public interface RowListener {
+		// position is the index of the row in the list passed to insert
+		void onRow(int position, BulkRowStatus status, String message) throws IOException;
+	}
+
+	public BulkInserter(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager,
+			PerformanceMonitor performanceMonitor, String table, String keyColumn, String insertSql,
+			ParameterizedPreparedStatementSetter<T> parameterSetter) {
+		this.jdbcTemplate = jdbcTemplate;
+		this.transactionManager = transactionManager;
+		this.performanceMonitor = performanceMonitor;
+		this.table = table;
+		this.keyColumn = keyColumn;
+		this.insertSql = insertSql;
+		this.parameterSetter = parameterSetter;
+	}
+
+	// Modifiable, so callers can add() the keys of the chunk to catch repeats inside it
+	public Set<String> selectExisting(List<String> keys) {
+		if (keys.isEmpty()) {
+			return new HashSet<>();
+		}
+		return new HashSet<>(this.performanceMonitor.record(Phase.QUERY, this.table + ".selectExisting",
+				() -> this.jdbcTemplate.queryForList("SELECT " + this.keyColumn + " FROM " + this.table + " WHERE "
+						+ this.keyColumn + " IN (" + String.join(",", Collections.nCopies(keys.size(), "?")) + ")",
+						String.class, keys.toArray())));
+	}
+
+	// Reports every row as CREATED, DUPLICATE or FAILED
+	public void insert(List<T> rows, RowListener listener) throws IOException {
+		if (rows.isEmpty()) {
+			return;
+		}
+		try {
+			new TransactionTemplate(this.transactionManager).execute(transactionStatus -> this.performanceMonitor
+					.record(Phase.QUERY, this.table + ".batchInsert", () -> this.jdbcTemplate
+							.batchUpdate(this.insertSql, rows, rows.size(), this.parameterSetter)));
+		} catch (DataAccessException e) {
+			insertOneByOne(rows, listener);
+			return;
+		}
+		for (int i = 0; i < rows.size(); i++) {
+			listener.onRow(i, BulkRowStatus.CREATED, null);
+		}
+	}
+
+	private void insertOneByOne(List<T> rows, RowListener listener) throws IOException {
+		for (int i = 0; i < rows.size(); i++) {
+			T row = rows.get(i);
+			BulkRowStatus status;
+			String message = null;
+			try {
+				this.performanceMonitor.record(Phase.QUERY, this.table + ".insert", () -> this.jdbcTemplate
+						.update(this.insertSql, preparedStatement -> this.parameterSetter.setValues(preparedStatement, row)));
+				status = BulkRowStatus.CREATED;
+			} catch (DuplicateKeyException e) {
+				status = BulkRowStatus.DUPLICATE;
+			} catch (DataAccessException e) {
+				e.printStackTrace();
+				status = BulkRowStatus.FAILED;
+				message = "Something went wrong";
+			}
+			listener.onRow(i, status, message);
+		}
+	}
+
+}
@@ -0,0 +1,97 @@
+package demo.logic.utilities;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.boundary.BulkRowStatus;
+
+/**
+ * Writes the result of a bulk request while it runs, as
+ * {@code {"results":[{"index":0,"key":"...","status":"CREATED"},...],"created":...,"rowsPerSecond":...}}.
+ * Only counters are kept, so the report costs the same memory for any number
+ * of rows.
+ */
+public class BulkReportWriter implements Closeable {
+	private final JsonGenerator generator;
+	private final Map<BulkRowStatus, Long> counts = new EnumMap<>(BulkRowStatus.class);
+	private final long startTime = System.nanoTime();
+	// Not synchronized, writing to the response while holding a monitor would pin a virtual thread
+	private final ReentrantLock lock = new ReentrantLock();
+
+	public BulkReportWriter(ObjectMapper objectMapper, OutputStream outputStream) throws IOException {
+		this.generator = objectMapper.getFactory().createGenerator(outputStream, JsonEncoding.UTF8)
+				.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		this.generator.writeStartObject();
+		this.generator.writeArrayFieldStart("results");
+		for (BulkRowStatus status : BulkRowStatus.values()) {
+			this.counts.put(status, 0L);
+		}
+	}
+
+	public void row(long index, String key, BulkRowStatus status, String message) throws IOException {
+		this.lock.lock();
+		try {
+			this.counts.merge(status, 1L, Long::sum);
+			this.generator.writeStartObject();
+			this.generator.writeNumberField("index", index);
+			this.generator.writeStringField("key", key);
+			this.generator.writeStringField("status", status.name());
+			if (message != null) {
+				this.generator.writeStringField("message", message);
+			}
+			this.generator.writeEndObject();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	// Called after each chunk so the caller sees the progress
+	public void flush() throws IOException {
+		this.lock.lock();
+		try {
+			this.generator.flush();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	public long getCount(BulkRowStatus status) {
+		this.lock.lock();
+		try {
+			return this.counts.get(status);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.lock.lock();
+		try {
+			long elapsedNanos = System.nanoTime() - this.startTime;
+			long rows = 0;
+			this.generator.writeEndArray();
+			for (Map.Entry<BulkRowStatus, Long> count : this.counts.entrySet()) {
+				this.generator.writeNumberField(count.getKey().name().toLowerCase(Locale.ROOT), count.getValue());
+				rows += count.getValue();
+			}
+			this.generator.writeNumberField("elapsedMillis", elapsedNanos / 1_000_000);
+			this.generator.writeNumberField("rowsPerSecond",
+					elapsedNanos > 0 ? rows * 1_000_000_000.0 / elapsedNanos : 0);
+			this.generator.writeEndObject();
+			this.generator.close();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+}
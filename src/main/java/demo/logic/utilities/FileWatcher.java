@@ -0,0 +1,55 @@
+package demo.logic.utilities;
+
+import java.io.File;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Polls a file's modification time and size and runs a callback on the
+ * watcher thread whenever either changes. Polling is used instead of a
+ * WatchService so that files on network shares and Windows drives behave the
+ * same way.
+ */
+public class FileWatcher implements AutoCloseable {
+	private final File file;
+	private final Runnable onChange;
+	private final ScheduledExecutorService scheduler;
+	private long lastModified;
+	private long length;
+
+	public FileWatcher(String name, File file, long intervalMillis, Runnable onChange) {
+		this.file = file;
+		this.onChange = onChange;
+		this.lastModified = file.lastModified();
+		this.length = file.length();
+		this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, name);
+			thread.setDaemon(true);
+			return thread;
+		});
+		this.scheduler.scheduleWithFixedDelay(this::poll, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private void poll() {
+		try {
+			long currentLastModified = this.file.lastModified();
+			long currentLength = this.file.length();
+			if (currentLastModified == this.lastModified && currentLength == this.length) {
+				return;
+			}
+			this.lastModified = currentLastModified;
+			this.length = currentLength;
+			this.onChange.run();
+		} catch (Exception e) {
+			// Keep watching, the next change gets another chance
+			e.printStackTrace();
+		}
+	}
+
+	@Override
+	public void close() {
+		this.scheduler.shutdownNow();
+	}
+
+}
@@ -0,0 +1,8 @@
+package demo.logic.utilities;
+
+/**
+ * Order in which queued password hashes are computed, first constant first.
+ */
+public enum HashingPriority {
+	LOGIN, CHANGE_PASSWORD, SIGNUP, FORGOT_PASSWORD, REHASH
+}
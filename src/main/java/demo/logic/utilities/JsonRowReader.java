@@ -0,0 +1,46 @@
+package demo.logic.utilities;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Reads the objects of a JSON array, or of newline delimited JSON, one at a
+ * time from a stream.
+ */
+public class JsonRowReader {
+	private final ObjectMapper objectMapper;
+	private final JsonParser parser;
+	private boolean array;
+	private boolean started;
+
+	public JsonRowReader(ObjectMapper objectMapper, InputStream inputStream) throws IOException {
+		this.objectMapper = objectMapper;
+		this.parser = objectMapper.getFactory().createParser(inputStream);
+	}
+
+	// null once the input is over
+	public JsonNode next() throws IOException {
+		JsonToken token = this.parser.nextToken();
+		if (!this.started) {
+			this.started = true;
+			if (token == JsonToken.START_ARRAY) {
+				this.array = true;
+				token = this.parser.nextToken();
+			}
+		}
+		if (token == null || (this.array && token == JsonToken.END_ARRAY)) {
+			return null;
+		}
+		return this.objectMapper.readTree(this.parser);
+	}
+
+	public <T> T convert(JsonNode row, Class<T> type) throws IOException {
+		return this.objectMapper.treeToValue(row, type);
+	}
+
+}
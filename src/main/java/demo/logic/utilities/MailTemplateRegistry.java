@@ -0,0 +1,183 @@
+package demo.logic.utilities;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import demo.logic.exceptions.InvalidFileException;
+import freemarker.core.MarkupOutputFormat;
+import freemarker.core.OutputFormat;
+import freemarker.core.TemplateElement;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Mail templates loaded and validated once, by name.
+ *
+ * A template made only of text and plain {@code ${variable}} interpolations,
+ * checked on its parsed tree, is rendered once with marker values and split
+ * around them, so sending a mail only escapes the values and appends them
+ * between the pre-rendered static parts. Any other construct, a directive or
+ * an expression such as {@code ${variable?length}}, keeps the template
+ * rendered by FreeMarker.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class MailTemplateRegistry {
+	private static final int BUFFER_HEADROOM = 256;
+	private static final ThreadLocal<StringBuilder> BUFFERS = ThreadLocal.withInitial(StringBuilder::new);
+	private @NonNull Configuration configuration;
+	private final Map<String, MailTemplate> templates = new ConcurrentHashMap<>();
+
+	public void register(String name, String templateFile, String... variables) {
+		try {
+			Template template = this.configuration.getTemplate(templateFile);
+			this.templates.put(name, new MailTemplate(template, variables));
+		} catch (IOException | TemplateException e) {
+			throw new InvalidFileException("Mail template " + templateFile + " is not valid: " + e.getMessage(), e);
+		}
+	}
+
+	public String render(String name, String... values) throws IOException, TemplateException {
+		MailTemplate mailTemplate = this.templates.get(name);
+		if (mailTemplate == null) {
+			throw new IllegalArgumentException("Mail template " + name + " was not registered");
+		}
+		return mailTemplate.render(values);
+	}
+
+	private static final class MailTemplate {
+		private final Template template;
+		private final String[] variables;
+		private final MarkupOutputFormat<?> escaping;
+		// null when the template has to be rendered by FreeMarker
+		private final String[] segments;
+		private final int[] slots;
+		private final int staticLength;
+
+		private MailTemplate(Template template, String[] variables) throws IOException, TemplateException {
+			this.template = template;
+			this.variables = variables.clone();
+			OutputFormat outputFormat = template.getOutputFormat();
+			this.escaping = outputFormat instanceof MarkupOutputFormat ? (MarkupOutputFormat<?>) outputFormat : null;
+
+			if (!isStatic(template.getRootTreeNode())) {
+				this.segments = null;
+				this.slots = null;
+				this.staticLength = 0;
+				return;
+			}
+			List<String> segments = new ArrayList<>();
+			List<Integer> slots = new ArrayList<>();
+			String prefix = markerPrefix();
+			split(renderWithFreeMarker(markers(prefix)), prefix, segments, slots);
+			// Different markers must give the same static parts, otherwise a variable affects the layout
+			List<String> otherSegments = new ArrayList<>();
+			List<Integer> otherSlots = new ArrayList<>();
+			String otherPrefix = markerPrefix();
+			split(renderWithFreeMarker(markers(otherPrefix)), otherPrefix, otherSegments, otherSlots);
+			if (segments.equals(otherSegments) && slots.equals(otherSlots)) {
+				this.segments = segments.toArray(new String[0]);
+				this.slots = slots.stream().mapToInt(Integer::intValue).toArray();
+				this.staticLength = segments.stream().mapToInt(String::length).sum();
+			} else {
+				this.segments = null;
+				this.slots = null;
+				this.staticLength = 0;
+			}
+		}
+
+		// Only what is known to print either fixed text or a variable as is, anything else is rendered every time
+		@SuppressWarnings("deprecation")
+		private boolean isStatic(TemplateElement element) {
+			switch (element.getClass().getSimpleName()) {
+			case "TextBlock":
+			case "Comment":
+				return true;
+			case "DollarVariable":
+				for (String variable : this.variables) {
+					if (("${" + variable + "}").equals(element.getCanonicalForm())) {
+						return true;
+					}
+				}
+				return false;
+			case "MixedContent":
+				for (int i = 0; i < element.getChildCount(); i++) {
+					if (!isStatic((TemplateElement) element.getChildAt(i))) {
+						return false;
+					}
+				}
+				return true;
+			default:
+				return false;
+			}
+		}
+
+		private String render(String... values) throws IOException, TemplateException {
+			if (this.segments == null) {
+				return renderWithFreeMarker(values);
+			}
+			StringBuilder buffer = BUFFERS.get();
+			buffer.setLength(0);
+			buffer.ensureCapacity(this.staticLength + BUFFER_HEADROOM);
+			for (int i = 0; i < this.slots.length; i++) {
+				buffer.append(this.segments[i]);
+				String value = this.slots[i] < values.length ? values[this.slots[i]] : null;
+				if (value != null) {
+					buffer.append(this.escaping == null ? value : this.escaping.escapePlainText(value));
+				}
+			}
+			buffer.append(this.segments[this.slots.length]);
+			return buffer.toString();
+		}
+
+		private String renderWithFreeMarker(String[] values) throws IOException, TemplateException {
+			Map<String, Object> model = new HashMap<>();
+			for (int i = 0; i < this.variables.length; i++) {
+				model.put(this.variables[i], i < values.length ? values[i] : null);
+			}
+			StringWriter stringWriter = new StringWriter();
+			this.template.process(model, stringWriter);
+			return stringWriter.toString();
+		}
+
+		private String markerPrefix() {
+			// Letters and digits only so that escaping leaves the markers untouched
+			return "mailTemplateMarker" + UUID.randomUUID().toString().replace("-", "");
+		}
+
+		private String[] markers(String prefix) {
+			String[] markers = new String[this.variables.length];
+			for (int i = 0; i < markers.length; i++) {
+				markers[i] = prefix + "x" + i + "x";
+			}
+			return markers;
+		}
+
+		private void split(String output, String prefix, List<String> segments, List<Integer> slots) {
+			// The number between the x's is the variable index
+			Matcher matcher = Pattern.compile(Pattern.quote(prefix) + "x(\\d+)x").matcher(output);
+			int start = 0;
+			while (matcher.find()) {
+				segments.add(output.substring(start, matcher.start()));
+				slots.add(Integer.parseInt(matcher.group(1)));
+				start = matcher.end();
+			}
+			segments.add(output.substring(start));
+		}
+	}
+
+}
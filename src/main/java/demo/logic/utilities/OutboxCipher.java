@@ -0,0 +1,92 @@
+package demo.logic.utilities;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * AES-GCM for the secrets queued in mail_outbox.content, so the table never
+ * holds a reset password in the clear. Values are stored as Base64 of
+ * {@code iv(12) ciphertext tag(16)}.
+ *
+ * The key comes from mail.outboxKey and must be the same on every node and
+ * across restarts, the mails queued with a lost key can never be sent. There
+ * is no default, a missing key fails startup.
+ */
+public final class OutboxCipher {
+	private static final String TRANSFORMATION = "AES/GCM/NoPadding";
+	private static final int IV_LENGTH = 12;
+	private static final int TAG_BITS = 128;
+	private final SecretKey key;
+	private final SecureRandom random = new SecureRandom();
+
+	private OutboxCipher(SecretKey key) {
+		this.key = key;
+	}
+
+	// base64Key is 16, 24 or 32 bytes
+	public static OutboxCipher create(String base64Key) {
+		if (base64Key == null || base64Key.trim().isEmpty()) {
+			throw new IllegalArgumentException("mail.outboxKey is not set, queued reset passwords could not be read"
+					+ " after a restart. Set it to a Base64 AES key, e.g. from openssl rand -base64 32");
+		}
+		byte[] key = Base64.getDecoder().decode(base64Key.trim());
+		if (key.length != 16 && key.length != 24 && key.length != 32) {
+			throw new IllegalArgumentException("mail.outboxKey must be 16, 24 or 32 bytes");
+		}
+		return new OutboxCipher(new SecretKeySpec(key, "AES"));
+	}
+
+	public String encrypt(String value) {
+		try {
+			byte[] iv = new byte[IV_LENGTH];
+			this.random.nextBytes(iv);
+			Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+			cipher.init(Cipher.ENCRYPT_MODE, this.key, new GCMParameterSpec(TAG_BITS, iv));
+			byte[] encrypted = cipher.doFinal(value.getBytes(StandardCharsets.UTF_8));
+			return Base64.getEncoder()
+					.encodeToString(ByteBuffer.allocate(IV_LENGTH + encrypted.length).put(iv).put(encrypted).array());
+		} catch (GeneralSecurityException e) {
+			e.printStackTrace();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Fails for a value written with another key, changed in the table or already wiped
+	public String decrypt(String value) {
+		try {
+			byte[] data = value != null ? Base64.getDecoder().decode(value) : new byte[0];
+			if (data.length < IV_LENGTH) {
+				throw new DecryptionException("Not an outbox value", null);
+			}
+			Cipher cipher = Cipher.getInstance(TRANSFORMATION);
+			cipher.init(Cipher.DECRYPT_MODE, this.key, new GCMParameterSpec(TAG_BITS, data, 0, IV_LENGTH));
+			return new String(cipher.doFinal(data, IV_LENGTH, data.length - IV_LENGTH), StandardCharsets.UTF_8);
+		} catch (GeneralSecurityException | IllegalArgumentException e) {
+			throw e instanceof DecryptionException ? (DecryptionException) e
+					: new DecryptionException("Outbox value cannot be decrypted", e);
+		}
+	}
+
+	// Retrying does not help, the value stays unreadable
+	public static class DecryptionException extends IllegalArgumentException {
+
+		/**
+		 * 
+		 */
+		private static final long serialVersionUID = 1L;
+
+		public DecryptionException(String message, Throwable cause) {
+			super(message, cause);
+		}
+
+	}
+
+}
@@ -0,0 +1,65 @@
+package demo.logic.utilities;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Base64;
+
+import demo.logic.exceptions.InvalidInputDataException;
+
+/**
+ * Opaque cursor for keyset pagination, holding the sort key of the last row of
+ * the previous page. Values of the key may be null.
+ */
+public class PageCursor {
+	public static final int DEFAULT_PAGE_SIZE = 10;
+	public static final int MAX_PAGE_SIZE = 1000;
+
+	private PageCursor() {
+	}
+
+	public static String encode(String... key) {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream output = new DataOutputStream(bytes);
+			output.writeByte(key.length);
+			for (String value : key) {
+				output.writeBoolean(value != null);
+				if (value != null) {
+					output.writeUTF(value);
+				}
+			}
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+		} catch (IOException e) {
+			e.printStackTrace();
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public static String[] decode(String cursor, int keyLength) {
+		try {
+			DataInputStream input = new DataInputStream(
+					new ByteArrayInputStream(Base64.getUrlDecoder().decode(cursor)));
+			if (input.readByte() != keyLength) {
+				throw new InvalidInputDataException("Invalid cursor");
+			}
+			String[] key = new String[keyLength];
+			for (int i = 0; i < keyLength; i++) {
+				key[i] = input.readBoolean() ? input.readUTF() : null;
+			}
+			return key;
+		} catch (IOException | IllegalArgumentException e) {
+			throw new InvalidInputDataException("Invalid cursor");
+		}
+	}
+
+	public static int validateSize(int size) {
+		if (size < 1 || size > MAX_PAGE_SIZE) {
+			throw new InvalidInputDataException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+		}
+		return size;
+	}
+
+}
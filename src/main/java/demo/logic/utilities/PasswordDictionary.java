@@ -0,0 +1,168 @@
+package demo.logic.utilities;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+
+import demo.logic.exceptions.InvalidFileException;
+
+/**
+ * In-memory index of the password dictionary file.
+ *
+ * Every word is stored as a 64 bit hash in an open addressing table, so a
+ * lookup is a couple of array reads no matter how large the dictionary is. The
+ * table is a power of two at least 4/3 of the word count, for a 10M words file
+ * 2^24 longs or 128MB instead of the gigabytes a {@code HashSet<String>} would
+ * need. The file is watched and the index is rebuilt on the watcher thread;
+ * lookups keep using the previous index until the new one is swapped in.
+ *
+ * Building also holds the hashes read from the file, up to another 128MB for
+ * 10M words, and during a reload the previous index stays in use, so size the
+ * heap for about three times the table while the file changes.
+ */
+@Component
+public class PasswordDictionary {
+	private static final long DEFAULT_RELOAD_INTERVAL_MILLIS = 10_000;
+	private volatile Index index;
+	private volatile String exceptionMessage = "Password dictionary was not loaded";
+	private String dictionaryFile;
+	private FileWatcher watcher;
+	// Loading reads the file, a monitor would pin a virtual thread for that long
+	private final ReentrantLock lock = new ReentrantLock();
+
+	public void load(String dictionaryFile, long reloadIntervalSeconds) {
+		this.lock.lock();
+		try {
+			if (Objects.equals(this.dictionaryFile, dictionaryFile)) {
+				return;
+			}
+			close();
+			this.dictionaryFile = dictionaryFile;
+			this.index = null;
+			reload();
+			long intervalMillis = reloadIntervalSeconds > 0 ? TimeUnit.SECONDS.toMillis(reloadIntervalSeconds)
+					: DEFAULT_RELOAD_INTERVAL_MILLIS;
+			this.watcher = new FileWatcher("password-dictionary-watcher", new File(dictionaryFile), intervalMillis,
+					this::reload);
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	public boolean contains(String password) {
+		Index current = this.index;
+		if (current == null) {
+			throw new InvalidFileException(this.exceptionMessage);
+		}
+		return current.contains(hash(password));
+	}
+
+	private void reload() {
+		String file = this.dictionaryFile;
+		try {
+			Index newIndex = build(file);
+			if (file.equals(this.dictionaryFile)) {
+				this.index = newIndex;
+			}
+		} catch (IOException e) {
+			// Keep serving the previous index if there is one
+			this.exceptionMessage = e.getMessage();
+		}
+	}
+
+	@PreDestroy
+	public void close() {
+		this.lock.lock();
+		try {
+			if (this.watcher != null) {
+				this.watcher.close();
+				this.watcher = null;
+			}
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	private static Index build(String dictionaryFile) throws IOException {
+		long[] hashes = new long[1024];
+		int size = 0;
+		try (BufferedReader reader = Files.newBufferedReader(Paths.get(dictionaryFile), Charset.defaultCharset())) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (size == hashes.length) {
+					hashes = Arrays.copyOf(hashes, size << 1);
+				}
+				hashes[size++] = hash(line);
+			}
+		}
+		Index index = new Index(size);
+		for (int i = 0; i < size; i++) {
+			index.add(hashes[i]);
+		}
+		return index;
+	}
+
+	// FNV-1a over the UTF-16 chars followed by the murmur3 finalizer
+	static long hash(String value) {
+		long hash = 0xcbf29ce484222325L;
+		for (int i = 0; i < value.length(); i++) {
+			hash ^= value.charAt(i);
+			hash *= 0x100000001b3L;
+		}
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+		// 0 marks an empty slot
+		return hash == 0 ? 1 : hash;
+	}
+
+	private static final class Index {
+		private final long[] table;
+		private final int mask;
+
+		private Index(int expectedSize) {
+			// Keep the load factor at or below 0.75, linear probing is still short there
+			long minimum = Math.max(expectedSize, 1) * 4L / 3 + 1;
+			int capacity = Integer.highestOneBit((int) Math.min(minimum, 1 << 30) - 1) << 1;
+			this.table = new long[Math.max(capacity, 2)];
+			this.mask = this.table.length - 1;
+		}
+
+		private void add(long hash) {
+			int slot = (int) hash & this.mask;
+			while (this.table[slot] != 0) {
+				if (this.table[slot] == hash) {
+					return;
+				}
+				slot = (slot + 1) & this.mask;
+			}
+			this.table[slot] = hash;
+		}
+
+		private boolean contains(long hash) {
+			int slot = (int) hash & this.mask;
+			long current;
+			while ((current = this.table[slot]) != 0) {
+				if (current == hash) {
+					return true;
+				}
+				slot = (slot + 1) & this.mask;
+			}
+			return false;
+		}
+	}
+
+}
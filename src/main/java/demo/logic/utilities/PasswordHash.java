@@ -0,0 +1,124 @@
+package demo.logic.utilities;
+
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.Arrays;
+
+import lombok.Getter;
+
+/**
+ * A password hash together with the parameters it was computed with.
+ *
+ * Encoded as {@code version(1) algorithm(1) iterations(4) keyLength(2)
+ * saltLength(1) salt hash}. Hashes stored before the format existed are the
+ * bare 16 bytes of a PBKDF2WithHmacSHA1, 65536 iterations, 128 bit key and are
+ * decoded with those parameters and the salt column.
+ *
+ * The users table keeps the fixed width form {@code algorithm(1)
+ * iterations(4) hash(16)} in a BINARY column, with the salt in a column of its
+ * own.
+ */
+@Getter
+public class PasswordHash {
+	public static final String LEGACY_ALGORITHM = "PBKDF2WithHmacSHA1";
+	public static final int LEGACY_ITERATIONS = 65536;
+	public static final int LEGACY_KEY_LENGTH = 128;
+	private static final byte VERSION = 1;
+	private static final String[] ALGORITHMS = { LEGACY_ALGORITHM, "PBKDF2WithHmacSHA256", "PBKDF2WithHmacSHA512" };
+	public static final int STORED_LENGTH = 5 + LEGACY_KEY_LENGTH / 8;
+	private static final int HEADER_LENGTH = 9;
+	private final String algorithm;
+	private final int iterations;
+	private final int keyLength;
+	private final byte[] salt;
+	private final byte[] hash;
+
+	public PasswordHash(String algorithm, int iterations, int keyLength, byte[] salt, byte[] hash) {
+		algorithmId(algorithm);
+		this.algorithm = algorithm;
+		this.iterations = iterations;
+		this.keyLength = keyLength;
+		this.salt = salt;
+		this.hash = hash;
+	}
+
+	public static PasswordHash decode(byte[] encoded, byte[] legacySalt) {
+		if (encoded.length == LEGACY_KEY_LENGTH / 8) {
+			return new PasswordHash(LEGACY_ALGORITHM, LEGACY_ITERATIONS, LEGACY_KEY_LENGTH, legacySalt, encoded);
+		}
+		if (encoded.length < HEADER_LENGTH || encoded[0] != VERSION) {
+			throw new IllegalArgumentException("Unknown password hash format");
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(encoded);
+		buffer.get();
+		int algorithmId = buffer.get();
+		if (algorithmId < 0 || algorithmId >= ALGORITHMS.length) {
+			throw new IllegalArgumentException("Unknown password hash algorithm");
+		}
+		int iterations = buffer.getInt();
+		int keyLength = buffer.getShort() & 0xffff;
+		byte[] salt = new byte[buffer.get() & 0xff];
+		buffer.get(salt);
+		byte[] hash = new byte[buffer.remaining()];
+		buffer.get(hash);
+		return new PasswordHash(ALGORITHMS[algorithmId], iterations, keyLength, salt, hash);
+	}
+
+	public static PasswordHash readStored(byte[] stored, int offset, byte[] salt) {
+		int iterations = (stored[offset + 1] & 0xff) << 24 | (stored[offset + 2] & 0xff) << 16
+				| (stored[offset + 3] & 0xff) << 8 | (stored[offset + 4] & 0xff);
+		return new PasswordHash(algorithm(stored[offset]), iterations, LEGACY_KEY_LENGTH, salt,
+				Arrays.copyOfRange(stored, offset + 5, offset + STORED_LENGTH));
+	}
+
+	public byte[] encodeStored() {
+		byte[] stored = new byte[STORED_LENGTH];
+		writeStored(stored, 0);
+		return stored;
+	}
+
+	public void writeStored(byte[] target, int offset) {
+		if (this.keyLength != LEGACY_KEY_LENGTH || this.hash.length != LEGACY_KEY_LENGTH / 8) {
+			throw new IllegalArgumentException("Only " + LEGACY_KEY_LENGTH + " bit hashes have a fixed width form");
+		}
+		target[offset] = (byte) algorithmId(this.algorithm);
+		target[offset + 1] = (byte) (this.iterations >>> 24);
+		target[offset + 2] = (byte) (this.iterations >>> 16);
+		target[offset + 3] = (byte) (this.iterations >>> 8);
+		target[offset + 4] = (byte) this.iterations;
+		System.arraycopy(this.hash, 0, target, offset + 5, this.hash.length);
+	}
+
+	public byte[] encode() {
+		return ByteBuffer.allocate(HEADER_LENGTH + this.salt.length + this.hash.length).put(VERSION)
+				.put((byte) algorithmId(this.algorithm)).putInt(this.iterations).putShort((short) this.keyLength)
+				.put((byte) this.salt.length).put(this.salt).put(this.hash).array();
+	}
+
+	public boolean hasSameParameters(PasswordHash other) {
+		return this.algorithm.equals(other.algorithm) && this.iterations == other.iterations
+				&& this.keyLength == other.keyLength && Arrays.equals(this.salt, other.salt);
+	}
+
+	public boolean matches(PasswordHash other) {
+		// Constant time so the comparison does not leak how much of the hash matched
+		return hasSameParameters(other) && MessageDigest.isEqual(this.hash, other.hash);
+	}
+
+	static String algorithm(int algorithmId) {
+		if (algorithmId < 0 || algorithmId >= ALGORITHMS.length) {
+			throw new IllegalArgumentException("Unknown password hash algorithm");
+		}
+		return ALGORITHMS[algorithmId];
+	}
+
+	static int algorithmId(String algorithm) {
+		for (int i = 0; i < ALGORITHMS.length; i++) {
+			if (ALGORITHMS[i].equals(algorithm)) {
+				return i;
+			}
+		}
+		throw new IllegalArgumentException("Unsupported password hash algorithm " + algorithm);
+	}
+
+}
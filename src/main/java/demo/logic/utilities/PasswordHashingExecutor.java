@@ -0,0 +1,199 @@
+package demo.logic.utilities;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import demo.config.PasswordConfig;
+import demo.config.Permission;
+import demo.logic.exceptions.InternalErrorException;
+import demo.logic.exceptions.ServiceOverloadedException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Runs the CPU bound password hashing on a pool sized to the cores instead of
+ * the Tomcat request threads. Waiting work is ordered by
+ * {@link HashingPriority} and every priority may queue a fixed number of
+ * tasks of its own, so background rehashes can't take the places of logins.
+ * Anything above that, or a caller waiting longer than the configured timeout,
+ * is rejected with {@link ServiceOverloadedException}.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class PasswordHashingExecutor {
+	private static final int DEFAULT_QUEUE_CAPACITY_PER_THREAD = 16;
+	private static final long DEFAULT_RETRY_AFTER = 1;
+	private static final long DEFAULT_WAIT_TIMEOUT = 10000;
+	// Rehashes only get this part of the capacity and are dropped above it
+	private static final int REHASH_CAPACITY_DIVISOR = 4;
+	private @NonNull XMLReader xmlReader;
+	private @NonNull MeterRegistry meterRegistry;
+	private final Map<HashingPriority, AtomicInteger> queued = new EnumMap<>(HashingPriority.class);
+	private final AtomicLong sequence = new AtomicLong();
+	private final Map<HashingPriority, Timer> queueWaitTimers = new EnumMap<>(HashingPriority.class);
+	private ThreadPoolExecutor executor;
+	private Timer computeTimer;
+	private Counter rejectedCounter;
+
+	@PostConstruct
+	private void init() {
+		PasswordConfig passwordConfig = getPasswordConfig();
+		int threads = passwordConfig.getHashingThreads() > 0 ? passwordConfig.getHashingThreads()
+				: Runtime.getRuntime().availableProcessors();
+		AtomicInteger threadNumber = new AtomicInteger();
+		this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+				new PriorityBlockingQueue<>(), runnable -> {
+					Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				});
+		for (HashingPriority priority : HashingPriority.values()) {
+			AtomicInteger queuedTasks = new AtomicInteger();
+			this.queued.put(priority, queuedTasks);
+			Gauge.builder("password.hashing.queue.size", queuedTasks, AtomicInteger::get)
+					.tag("priority", priority.name()).register(this.meterRegistry);
+			this.queueWaitTimers.put(priority, Timer.builder("password.hashing.queue.wait")
+					.tag("priority", priority.name()).register(this.meterRegistry));
+		}
+		this.computeTimer = Timer.builder("password.hashing.compute").register(this.meterRegistry);
+		this.rejectedCounter = this.meterRegistry.counter("password.hashing.rejected");
+	}
+
+	@PreDestroy
+	public void close() {
+		this.executor.shutdownNow();
+	}
+
+	public <T> T execute(HashingPriority priority, Callable<T> task) throws Exception {
+		PasswordConfig passwordConfig = getPasswordConfig();
+		long retryAfter = passwordConfig.getHashingRetryAfter() > 0 ? passwordConfig.getHashingRetryAfter()
+				: DEFAULT_RETRY_AFTER;
+		if (!tryEnqueue(priority, passwordConfig)) {
+			throw new ServiceOverloadedException(retryAfter);
+		}
+		long waitTimeout = passwordConfig.getHashingWaitTimeout() > 0 ? passwordConfig.getHashingWaitTimeout()
+				: DEFAULT_WAIT_TIMEOUT;
+		// The caller waits for the result, so the hashing counts towards its request
+		PrioritizedTask<T> prioritizedTask = start(priority, task, RequestTimings.current());
+		try {
+			return prioritizedTask.get(waitTimeout, TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			// Not started yet it is skipped, started it finishes but nobody waits for it
+			prioritizedTask.cancel(false);
+			this.rejectedCounter.increment();
+			throw new ServiceOverloadedException(retryAfter);
+		} catch (InterruptedException e) {
+			prioritizedTask.cancel(false);
+			Thread.currentThread().interrupt();
+			throw new InternalErrorException("Something went wrong", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw new InternalErrorException("Something went wrong", cause);
+		}
+	}
+
+	// Fire and forget, returns false when the work was dropped because the queue is full
+	public boolean submit(HashingPriority priority, Runnable task) {
+		if (!tryEnqueue(priority, getPasswordConfig())) {
+			return false;
+		}
+		start(priority, Executors.callable(task), null);
+		return true;
+	}
+
+	private boolean tryEnqueue(HashingPriority priority, PasswordConfig passwordConfig) {
+		int capacity = passwordConfig.getHashingQueueCapacity() > 0 ? passwordConfig.getHashingQueueCapacity()
+				: DEFAULT_QUEUE_CAPACITY_PER_THREAD * this.executor.getMaximumPoolSize();
+		if (priority == HashingPriority.REHASH) {
+			capacity = Math.max(1, capacity / REHASH_CAPACITY_DIVISOR);
+		}
+		AtomicInteger queuedTasks = this.queued.get(priority);
+		if (queuedTasks.incrementAndGet() > capacity) {
+			queuedTasks.decrementAndGet();
+			this.rejectedCounter.increment();
+			return false;
+		}
+		return true;
+	}
+
+	private <T> PrioritizedTask<T> start(HashingPriority priority, Callable<T> task, RequestTimings timings) {
+		PrioritizedTask<T> prioritizedTask = new PrioritizedTask<>(priority, this.sequence.getAndIncrement(), task,
+				timings);
+		try {
+			this.executor.execute(prioritizedTask);
+		} catch (RuntimeException e) {
+			this.queued.get(priority).decrementAndGet();
+			throw e;
+		}
+		return prioritizedTask;
+	}
+
+	private PasswordConfig getPasswordConfig() {
+		return this.xmlReader.loadConfigFile().getConfiguration(Permission.PASSWORD, PasswordConfig.class);
+	}
+
+	private final class PrioritizedTask<T> extends FutureTask<T> implements Comparable<PrioritizedTask<?>> {
+		private final HashingPriority priority;
+		private final long sequence;
+		private final RequestTimings timings;
+		private final long submitTime = System.nanoTime();
+
+		private PrioritizedTask(HashingPriority priority, long sequence, Callable<T> task, RequestTimings timings) {
+			super(task);
+			this.priority = priority;
+			this.sequence = sequence;
+			this.timings = timings;
+		}
+
+		@Override
+		public void run() {
+			long startTime = System.nanoTime();
+			queued.get(this.priority).decrementAndGet();
+			queueWaitTimers.get(this.priority).record(startTime - this.submitTime, TimeUnit.NANOSECONDS);
+			RequestTimings previous = null;
+			if (this.timings != null) {
+				this.timings.addQueueWait(startTime - this.submitTime);
+				previous = RequestTimings.attach(this.timings);
+			}
+			try {
+				super.run();
+			} finally {
+				if (this.timings != null) {
+					RequestTimings.detach(previous);
+				}
+				computeTimer.record(System.nanoTime() - startTime, TimeUnit.NANOSECONDS);
+			}
+		}
+
+		@Override
+		public int compareTo(PrioritizedTask<?> other) {
+			int result = this.priority.compareTo(other.priority);
+			// Same priority keeps the submission order
+			return result != 0 ? result : Long.compare(this.sequence, other.sequence);
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+package demo.logic.utilities;
+
+/**
+ * The last passwords of a user as a fixed width ring buffer, stored as is in
+ * users.password_history.
+ *
+ * Layout is {@code version(1) capacity(1) count(1) head(1)} followed by
+ * capacity entries in the fixed width form of PasswordHash, {@code
+ * algorithm(1) iterations(4) hash(16)}. head is the slot the next password
+ * goes to. All entries use the salt of the user and a 128 bit key, so reading
+ * and comparing an entry works on the array directly.
+ */
+public final class PasswordHistory {
+	public static final int MAX_CAPACITY = 48;
+	public static final int MAX_LENGTH = 1024;
+	private static final byte VERSION = 1;
+	private static final int HEADER_LENGTH = 4;
+	private static final int HASH_LENGTH = PasswordHash.LEGACY_KEY_LENGTH / 8;
+	private static final int ENTRY_LENGTH = PasswordHash.STORED_LENGTH;
+	private final byte[] data;
+
+	private PasswordHistory(byte[] data) {
+		this.data = data;
+	}
+
+	public static PasswordHistory wrap(byte[] data) {
+		if (data.length < HEADER_LENGTH || data[0] != VERSION
+				|| data.length != HEADER_LENGTH + (data[1] & 0xff) * ENTRY_LENGTH) {
+			throw new IllegalArgumentException("Unknown password history format");
+		}
+		return new PasswordHistory(data);
+	}
+
+	public static PasswordHistory empty(int capacity) {
+		capacity = Math.max(1, Math.min(capacity, MAX_CAPACITY));
+		byte[] data = new byte[HEADER_LENGTH + capacity * ENTRY_LENGTH];
+		data[0] = VERSION;
+		data[1] = (byte) capacity;
+		return new PasswordHistory(data);
+	}
+
+	public byte[] getData() {
+		return this.data;
+	}
+
+	public int size() {
+		return this.data[2] & 0xff;
+	}
+
+	// 0 is the oldest entry
+	public String getAlgorithm(int index) {
+		return PasswordHash.algorithm(this.data[offset(index)]);
+	}
+
+	public int getIterations(int index) {
+		int offset = offset(index) + 1;
+		return (this.data[offset] & 0xff) << 24 | (this.data[offset + 1] & 0xff) << 16
+				| (this.data[offset + 2] & 0xff) << 8 | (this.data[offset + 3] & 0xff);
+	}
+
+	// Constant time, like PasswordHash.matches
+	public boolean matches(int index, byte[] hash) {
+		if (hash.length != HASH_LENGTH) {
+			return false;
+		}
+		int offset = offset(index) + 5;
+		int difference = 0;
+		for (int i = 0; i < HASH_LENGTH; i++) {
+			difference |= this.data[offset + i] ^ hash[i];
+		}
+		return difference == 0;
+	}
+
+	/**
+	 * Returns a new history with the hash appended, dropping the oldest entries
+	 * beyond capacity. The capacity may differ from the current one when the
+	 * configured history length changed.
+	 */
+	public PasswordHistory add(PasswordHash passwordHash, int capacity) {
+		byte[] entry = passwordHash.encodeStored();
+		PasswordHistory history;
+		if (Math.max(1, Math.min(capacity, MAX_CAPACITY)) == capacity()) {
+			history = new PasswordHistory(this.data.clone());
+		} else {
+			history = empty(capacity);
+			for (int i = Math.max(0, size() - history.capacity() + 1); i < size(); i++) {
+				history.append(this.data, offset(i));
+			}
+		}
+		history.append(entry, 0);
+		return history;
+	}
+
+	private void append(byte[] source, int sourceOffset) {
+		int capacity = capacity();
+		int head = this.data[3] & 0xff;
+		System.arraycopy(source, sourceOffset, this.data, HEADER_LENGTH + head * ENTRY_LENGTH, ENTRY_LENGTH);
+		this.data[3] = (byte) ((head + 1) % capacity);
+		this.data[2] = (byte) Math.min(size() + 1, capacity);
+	}
+
+	private int capacity() {
+		return this.data[1] & 0xff;
+	}
+
+	private int offset(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("Password history has " + size() + " entries");
+		}
+		int capacity = capacity();
+		int slot = ((this.data[3] & 0xff) - size() + index + capacity) % capacity;
+		return HEADER_LENGTH + slot * ENTRY_LENGTH;
+	}
+
+}
@@ -1,20 +1,17 @@
 package demo.logic.utilities;
 
-import java.io.IOException;
 import java.io.UnsupportedEncodingException;
-import java.nio.charset.Charset;
-import java.nio.file.Files;
-import java.nio.file.Paths;
 import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
 import java.security.spec.InvalidKeySpecException;
 import java.security.spec.KeySpec;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
-import java.util.stream.Stream;
 
 import javax.crypto.SecretKeyFactory;
 import javax.crypto.spec.PBEKeySpec;
@@ -31,10 +28,12 @@ import com.google.gson.reflect.TypeToken;
 import demo.boundary.UserBoundaryBaseWithPassword;
 import demo.boundary.UserBoundaryPasswordChange;
 import demo.config.Configurations;
+import demo.config.ConfigurationsChangedEvent;
 import demo.config.PasswordConfig;
 import demo.config.Permission;
 import demo.data.UserEntity;
-import demo.logic.exceptions.InvalidFileException;
+import demo.logic.exceptions.InternalErrorException;
+import demo.logic.utilities.PerformanceMonitor.Phase;
 import lombok.Getter;
 import lombok.NonNull;
 import lombok.RequiredArgsConstructor;
@@ -43,24 +42,152 @@ import lombok.RequiredArgsConstructor;
 @RequiredArgsConstructor(onConstructor = @__(@Autowired))
 public class PasswordManager {
 	public static final String BYTE_CHARSET = "ISO-8859-1";
+	public static final int SALT_LENGTH = 16;
+	private static final int CALIBRATION_ITERATIONS = 10000;
+	private static final int CALIBRATION_ROUNDS = 5;
+	private static final int DEFAULT_REHASH_TOLERANCE = 50;
 	private final long PERMISSIONS_VALUE = Permission.PASSWORD.getId();
 	@Getter
-	private PasswordConfig passwordConfig;
+	private volatile PasswordConfig passwordConfig;
+	private volatile Pattern symbolsPattern;
+	private volatile int iterations;
 	private @NonNull XMLReader xmlReader;
+	private @NonNull PasswordDictionary passwordDictionary;
+	private @NonNull PasswordHashingExecutor passwordHashingExecutor;
+	private @NonNull PerformanceMonitor performanceMonitor;
 	private Gson gson;
 	private SecureRandom random;
 
 	@EventListener(ApplicationReadyEvent.class)
 	private void init() {
-		this.setPasswordConfig();
+		this.setPasswordConfig(xmlReader.loadConfigFile());
 		this.random = new SecureRandom();
 		this.gson = new Gson();
 	}
 
+	public PasswordHash newParameters(byte[] salt) {
+		PasswordConfig passwordConfig = this.passwordConfig;
+		String algorithm = passwordConfig.getHashAlgorithm() != null ? passwordConfig.getHashAlgorithm()
+				: PasswordHash.LEGACY_ALGORITHM;
+		return new PasswordHash(algorithm, this.iterations, PasswordHash.LEGACY_KEY_LENGTH, salt, new byte[0]);
+	}
+
+	public PasswordHash hash(String password, PasswordHash parameters, HashingPriority priority)
+			throws NoSuchAlgorithmException, InvalidKeySpecException {
+		try {
+			return this.passwordHashingExecutor.execute(priority, () -> hash(password, parameters));
+		} catch (NoSuchAlgorithmException | InvalidKeySpecException | RuntimeException e) {
+			throw e;
+		} catch (Exception e) {
+			throw new InternalErrorException("Something went wrong", e);
+		}
+	}
+
+	public PasswordHash hash(String password, PasswordHash parameters)
+			throws NoSuchAlgorithmException, InvalidKeySpecException {
+		byte[] hash = encrypt(password, parameters.getSalt(), parameters.getAlgorithm(), parameters.getIterations(),
+				parameters.getKeyLength());
+		return new PasswordHash(parameters.getAlgorithm(), parameters.getIterations(), parameters.getKeyLength(),
+				parameters.getSalt(), hash);
+	}
+
 	public byte[] encrypt(String password, byte[] salt) throws NoSuchAlgorithmException, InvalidKeySpecException {
-		KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, 65536, 128);
-		SecretKeyFactory factory = SecretKeyFactory.getInstance("PBKDF2WithHmacSHA1");
-		return factory.generateSecret(spec).getEncoded();
+		return hash(password, newParameters(salt)).getHash();
+	}
+
+	private byte[] encrypt(String password, byte[] salt, String algorithm, int iterations, int keyLength)
+			throws NoSuchAlgorithmException, InvalidKeySpecException {
+		KeySpec spec = new PBEKeySpec(password.toCharArray(), salt, iterations, keyLength);
+		SecretKeyFactory factory = SecretKeyFactory.getInstance(algorithm);
+		return this.performanceMonitor.record(Phase.PASSWORD, "encrypt",
+				() -> factory.generateSecret(spec).getEncoded());
+	}
+
+	public boolean submit(HashingPriority priority, Runnable task) {
+		return this.passwordHashingExecutor.submit(priority, task);
+	}
+
+	/**
+	 * A hash is only redone when its algorithm or key length changed, or its
+	 * iterations are below hashIterations or more than hashRehashTolerance
+	 * percent below the calibrated count. The calibrated count moves a little
+	 * on every start and differs between nodes, an exact match would rewrite
+	 * the user on most logins.
+	 */
+	public boolean needsRehash(PasswordHash passwordHash) {
+		PasswordConfig passwordConfig = this.passwordConfig;
+		PasswordHash current = newParameters(passwordHash.getSalt());
+		if (!passwordHash.getAlgorithm().equals(current.getAlgorithm())
+				|| passwordHash.getKeyLength() != current.getKeyLength()) {
+			return true;
+		}
+		int minimum = passwordConfig.getHashIterations() > 0 ? passwordConfig.getHashIterations()
+				: PasswordHash.LEGACY_ITERATIONS;
+		int tolerance = passwordConfig.getHashRehashTolerance() > 0
+				? Math.min(passwordConfig.getHashRehashTolerance(), 100)
+				: DEFAULT_REHASH_TOLERANCE;
+		long lowest = Math.max(minimum, (long) current.getIterations() * (100 - tolerance) / 100);
+		return passwordHash.getIterations() < lowest;
+	}
+
+	public PasswordHash decode(String password, String salt) throws UnsupportedEncodingException {
+		return PasswordHash.decode(password.getBytes(BYTE_CHARSET), salt.getBytes(BYTE_CHARSET));
+	}
+
+	public String encode(PasswordHash passwordHash) throws UnsupportedEncodingException {
+		return new String(passwordHash.encode(), BYTE_CHARSET);
+	}
+
+	public PasswordHash getStoredHash(UserEntity entity) throws UnsupportedEncodingException {
+		if (entity.getPasswordHash() != null) {
+			return PasswordHash.readStored(entity.getPasswordHash(), 0, entity.getPasswordSalt());
+		}
+		return decode(entity.getPassword(), entity.getSalt());
+	}
+
+	public byte[] getSalt(UserEntity entity) throws UnsupportedEncodingException {
+		return entity.getPasswordSalt() != null ? entity.getPasswordSalt() : entity.getSalt().getBytes(BYTE_CHARSET);
+	}
+
+	// Also moves a row still on the string columns to the binary ones, the next update writes both
+	public void setStoredHash(UserEntity entity, PasswordHash passwordHash) {
+		if (passwordHash.getSalt().length != SALT_LENGTH) {
+			throw new IllegalArgumentException("Salts are " + SALT_LENGTH + " bytes");
+		}
+		entity.setPasswordHash(passwordHash.encodeStored());
+		if (!Arrays.equals(entity.getPasswordSalt(), passwordHash.getSalt())) {
+			entity.setPasswordSalt(passwordHash.getSalt());
+		}
+		if (entity.getPassword() != null || entity.getSalt() != null) {
+			entity.setPassword(null);
+			entity.setSalt(null);
+		}
+	}
+
+	// Picks the iteration count that takes about hashTargetTime on this machine, never less than hashIterations
+	private int calibrateIterations(PasswordConfig passwordConfig) {
+		int iterations = passwordConfig.getHashIterations() > 0 ? passwordConfig.getHashIterations()
+				: PasswordHash.LEGACY_ITERATIONS;
+		if (passwordConfig.getHashTargetTime() <= 0) {
+			return iterations;
+		}
+		try {
+			String algorithm = passwordConfig.getHashAlgorithm() != null ? passwordConfig.getHashAlgorithm()
+					: PasswordHash.LEGACY_ALGORITHM;
+			byte[] salt = new byte[SALT_LENGTH];
+			long fastest = Long.MAX_VALUE;
+			for (int i = 0; i < CALIBRATION_ROUNDS; i++) {
+				long start = System.nanoTime();
+				encrypt("calibration", salt, algorithm, CALIBRATION_ITERATIONS, PasswordHash.LEGACY_KEY_LENGTH);
+				fastest = Math.min(fastest, System.nanoTime() - start);
+			}
+			long targetNanos = TimeUnit.MILLISECONDS.toNanos(passwordConfig.getHashTargetTime());
+			long calibrated = targetNanos * CALIBRATION_ITERATIONS / Math.max(fastest, 1);
+			return (int) Math.min(Integer.MAX_VALUE, Math.max(iterations, calibrated));
+		} catch (NoSuchAlgorithmException | InvalidKeySpecException e) {
+			e.printStackTrace();
+			return iterations;
+		}
 	}
 
 	public void generateSaltValue(byte[] salt) {
@@ -69,10 +196,18 @@ public class PasswordManager {
 		} while (salt == null);
 	}
 
-	private void setPasswordConfig() {
-		Configurations configurations = xmlReader.loadConfigFile();
+	@EventListener(ConfigurationsChangedEvent.class)
+	private void onConfigurationsChanged(ConfigurationsChangedEvent event) {
+		this.setPasswordConfig(event.getConfigurations());
+	}
+
+	private void setPasswordConfig(Configurations configurations) {
 		Map<Permission, Object> permissions = configurations.getConfigurations(PERMISSIONS_VALUE);
-		this.passwordConfig = (PasswordConfig) permissions.get(Permission.PASSWORD);
+		PasswordConfig passwordConfig = (PasswordConfig) permissions.get(Permission.PASSWORD);
+		this.symbolsPattern = Pattern.compile(passwordConfig.getSymbols());
+		this.iterations = calibrateIterations(passwordConfig);
+		this.passwordConfig = passwordConfig;
+		this.passwordDictionary.load(passwordConfig.getDictionaryFile(), passwordConfig.getDictionaryReloadInterval());
 	}
 
 	public boolean validatePasswordForSignup(UserBoundaryBaseWithPassword userBoundary) {
@@ -92,21 +227,33 @@ public class PasswordManager {
 		return (password.length() >= this.passwordConfig.getLength());
 	}
 
-	private boolean validateSymbols(String password) {
-		Pattern pattern = Pattern.compile(this.passwordConfig.getSymbols());
-		Matcher m = pattern.matcher(password);
-		return m.matches();
+	boolean validateSymbols(String password) {
+		Matcher m = this.symbolsPattern.matcher(password);
+		return this.performanceMonitor.record(Phase.PASSWORD, "validateSymbols", m::matches);
 	}
 
 	private boolean validateHistory(UserBoundaryPasswordChange userBoundary, UserEntity entity) {
 		try {
-			byte[] salt = entity.getSalt().getBytes(BYTE_CHARSET);
-			byte[] newPasswordHash = encrypt(userBoundary.getNewPassword(), salt);
-			byte[] oldPasswordHash;
-			List<String> oldPasswords = gson.fromJson(entity.getOldPasswords(), new TypeToken<List<String>>(){}.getType());
-			for (String oldPassword : oldPasswords) {
-				oldPasswordHash = oldPassword.getBytes(BYTE_CHARSET);
-				if (Arrays.equals(newPasswordHash, oldPasswordHash)) {
+			PasswordHistory passwordHistory = getPasswordHistory(entity);
+			byte[] salt = getSalt(entity);
+			// Old passwords may have been hashed with different parameters, hash once per parameter set
+			List<PasswordHash> newPasswordHashes = new ArrayList<>();
+			for (int i = 0; i < passwordHistory.size(); i++) {
+				String algorithm = passwordHistory.getAlgorithm(i);
+				int iterations = passwordHistory.getIterations(i);
+				PasswordHash newPasswordHash = null;
+				for (PasswordHash candidate : newPasswordHashes) {
+					if (candidate.getAlgorithm().equals(algorithm) && candidate.getIterations() == iterations) {
+						newPasswordHash = candidate;
+					}
+				}
+				if (newPasswordHash == null) {
+					newPasswordHash = hash(userBoundary.getNewPassword(),
+							new PasswordHash(algorithm, iterations, PasswordHash.LEGACY_KEY_LENGTH, salt, new byte[0]),
+							HashingPriority.CHANGE_PASSWORD);
+					newPasswordHashes.add(newPasswordHash);
+				}
+				if (passwordHistory.matches(i, newPasswordHash.getHash())) {
 					return false;
 				}
 			}
@@ -117,20 +264,37 @@ public class PasswordManager {
 		}
 	}
 
-	private boolean validateDictionary(UserBoundaryBaseWithPassword userBoundary) {
-		boolean passwordExistsInDictionary[] = { false };
-		try (Stream<String> lines = Files.lines(Paths.get(this.passwordConfig.getDictionaryFile()),
-				Charset.defaultCharset())) {
-			lines.forEachOrdered(line -> {
-				if (userBoundary.getPassword().equals(line)) {
-					passwordExistsInDictionary[0] = true;
-					return;
-				}
-			});
-		} catch (IOException e) {
-			throw new InvalidFileException(e.getMessage());
+	public PasswordHistory newPasswordHistory(PasswordHash passwordHash) {
+		int history = this.passwordConfig.getHistory();
+		return PasswordHistory.empty(history).add(passwordHash, history);
+	}
+
+	/**
+	 * Rows written before the binary history keep the Gson list in
+	 * old_passwords. It is converted here and set on the entity, so the next
+	 * update of the row stores the new column and clears the old one.
+	 */
+	public PasswordHistory getPasswordHistory(UserEntity entity) throws UnsupportedEncodingException {
+		if (entity.getPasswordHistory() != null) {
+			return PasswordHistory.wrap(entity.getPasswordHistory());
 		}
-		return !passwordExistsInDictionary[0];
+		int history = this.passwordConfig.getHistory();
+		PasswordHistory passwordHistory = PasswordHistory.empty(history);
+		if (entity.getOldPasswords() != null) {
+			List<String> oldPasswords = gson.fromJson(entity.getOldPasswords(), new TypeToken<List<String>>(){}.getType());
+			for (String oldPassword : oldPasswords) {
+				passwordHistory = passwordHistory.add(
+						PasswordHash.decode(oldPassword.getBytes(BYTE_CHARSET), getSalt(entity)), history);
+			}
+		}
+		entity.setPasswordHistory(passwordHistory.getData());
+		entity.setOldPasswords(null);
+		return passwordHistory;
+	}
+
+	private boolean validateDictionary(UserBoundaryBaseWithPassword userBoundary) {
+		return !this.performanceMonitor.record(Phase.PASSWORD, "validateDictionary",
+				() -> this.passwordDictionary.contains(userBoundary.getPassword()));
 	}
 
 	private boolean validateLoginAttempts(int numberOfLoginAttempts) {
@@ -0,0 +1,130 @@
+package demo.logic.utilities;
+
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Times the work done on the request path, one timer per phase and operation,
+ * adds it to the RequestTimings of the request and emits a PhaseEvent for
+ * Flight Recorder around it.
+ *
+ * The timers are looked up once and kept, so recording is two nanoTime calls
+ * and a map read. The event is disabled unless a recording turns it on, its
+ * fields are only filled in when it is going to be committed. Flight Recorder
+ * came to Java 8 in 8u262, on an older runtime only the timers are recorded.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class PerformanceMonitor {
+	private static final boolean FLIGHT_RECORDER = isFlightRecorderAvailable();
+	private @NonNull MeterRegistry meterRegistry;
+	private final Map<Phase, Map<String, Timer>> timers = new EnumMap<>(Phase.class);
+
+	{
+		for (Phase phase : Phase.values()) {
+			this.timers.put(phase, new ConcurrentHashMap<>());
+		}
+	}
+
+	public <T, E extends Exception> T record(Phase phase, String operation, Task<T, E> task) throws E {
+		return record(phase, operation, null, task);
+	}
+
+	public <T, E extends Exception> T record(Phase phase, String operation, String username, Task<T, E> task)
+			throws E {
+		Object event = FLIGHT_RECORDER ? PhaseEvents.begin() : null;
+		RequestTimings timings = RequestTimings.current();
+		if (timings != null) {
+			timings.enter();
+		}
+		long start = System.nanoTime();
+		T result = null;
+		try {
+			result = task.run();
+			return result;
+		} finally {
+			long elapsed = System.nanoTime() - start;
+			getTimer(phase, operation).record(elapsed, TimeUnit.NANOSECONDS);
+			if (timings != null) {
+				timings.exit(phase, elapsed);
+			}
+			if (event != null) {
+				// The recording may leave the machine, the username itself does not go in it
+				PhaseEvents.end(event, phase, operation, username, result);
+			}
+		}
+	}
+
+	private static boolean isFlightRecorderAvailable() {
+		try {
+			Class.forName("jdk.jfr.Event", false, PerformanceMonitor.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	private Timer getTimer(Phase phase, String operation) {
+		Map<String, Timer> timers = this.timers.get(phase);
+		Timer timer = timers.get(operation);
+		if (timer == null) {
+			timer = timers.computeIfAbsent(operation, key -> Timer.builder(phase.getMetricName())
+					.tag("operation", key).register(this.meterRegistry));
+		}
+		return timer;
+	}
+
+	// Rows read or written, as far as the result tells
+	static long rows(Object result) {
+		if (result instanceof Number) {
+			return ((Number) result).longValue();
+		}
+		if (result instanceof Collection) {
+			return ((Collection<?>) result).size();
+		}
+		if (result instanceof int[]) {
+			long rows = 0;
+			for (int count : (int[]) result) {
+				rows += count;
+			}
+			return rows;
+		}
+		if (result instanceof int[][]) {
+			long rows = 0;
+			for (int[] counts : (int[][]) result) {
+				rows += rows(counts);
+			}
+			return rows;
+		}
+		return 0;
+	}
+
+	@FunctionalInterface
+	public interface Task<T, E extends Exception> {
+		T run() throws E;
+	}
+
+	@Getter
+	public enum Phase {
+		PASSWORD("password.operations"), QUERY("db.queries"), TRANSACTION("db.transactions"), MAIL("mail.sends");
+
+		private final String metricName;
+
+		Phase(String metricName) {
+			this.metricName = metricName;
+		}
+	}
+
+}
@@ -0,0 +1,32 @@
+package demo.logic.utilities;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * One phase of a request as timed by PerformanceMonitor. Off by default,
+ * jfr/request-phases.jfc turns it on. Only used through PhaseEvents.
+ */
+@Name("demo.RequestPhase")
+@Label("Request Phase")
+@Category({ "Communication LTD", "Requests" })
+@Description("Password hashing, database query, transaction or mail send done for a request")
+@Enabled(false)
+@StackTrace(false)
+class PhaseEvent extends Event {
+	@Label("Phase")
+	String phase;
+	@Label("Operation")
+	String operation;
+	@Label("Username Hash")
+	@Description("Keyed hash of the username, only comparable within one run, 0 when the phase is not about one user")
+	long usernameHash;
+	@Label("Rows")
+	@Description("Rows read or written, 0 when not known")
+	long rows;
+}
@@ -0,0 +1,68 @@
+package demo.logic.utilities;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import demo.logic.utilities.PerformanceMonitor.Phase;
+
+/**
+ * Everything that touches jdk.jfr, so PerformanceMonitor only loads it on a
+ * runtime that has Flight Recorder. Events go around as Object for the same
+ * reason.
+ *
+ * Usernames are recorded as an HMAC under a key made at startup: the same
+ * user gets the same value within one run, and the recording cannot be
+ * matched against a list of usernames.
+ */
+final class PhaseEvents {
+	private static final String HMAC_ALGORITHM = "HmacSHA256";
+	private static final SecretKeySpec USERNAME_KEY;
+	private static final ThreadLocal<Mac> MACS = ThreadLocal.withInitial(PhaseEvents::newMac);
+
+	static {
+		byte[] key = new byte[32];
+		new SecureRandom().nextBytes(key);
+		USERNAME_KEY = new SecretKeySpec(key, HMAC_ALGORITHM);
+	}
+
+	private PhaseEvents() {
+	}
+
+	static Object begin() {
+		PhaseEvent event = new PhaseEvent();
+		event.begin();
+		return event;
+	}
+
+	static void end(Object startedEvent, Phase phase, String operation, String username, Object result) {
+		PhaseEvent event = (PhaseEvent) startedEvent;
+		event.end();
+		if (event.shouldCommit()) {
+			event.phase = phase.name();
+			event.operation = operation;
+			event.usernameHash = username != null ? hash(username) : 0;
+			event.rows = PerformanceMonitor.rows(result);
+			event.commit();
+		}
+	}
+
+	private static long hash(String username) {
+		return ByteBuffer.wrap(MACS.get().doFinal(username.getBytes(StandardCharsets.UTF_8))).getLong();
+	}
+
+	private static Mac newMac() {
+		try {
+			Mac mac = Mac.getInstance(HMAC_ALGORITHM);
+			mac.init(USERNAME_KEY);
+			return mac;
+		} catch (GeneralSecurityException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+}
@@ -0,0 +1,148 @@
+package demo.logic.utilities;
+
+import java.util.Locale;
+
+import demo.logic.utilities.PerformanceMonitor.Phase;
+
+/**
+ * Where the time of the current request went, summed per phase.
+ *
+ * Phases nest, a transaction contains its queries and a hash may run inside a
+ * transaction, so every phase is charged only its own time. The time of the
+ * phases inside it, and any wait for a hashing thread, is taken off, and the
+ * phases add up to no more than the total.
+ *
+ * Each thread keeps one instance and reuses it for every request it serves,
+ * so recording into it is a ThreadLocal read and a few array writes. Work handed
+ * to another thread while the request thread waits for it, like the password
+ * hashing, is attached to that thread for the duration.
+ */
+public final class RequestTimings {
+	private static final ThreadLocal<RequestTimings> OWN = ThreadLocal.withInitial(RequestTimings::new);
+	private static final ThreadLocal<RequestTimings> CURRENT = new ThreadLocal<>();
+	private static final Phase[] PHASES = Phase.values();
+	// The phases followed by the wait for a password hashing thread
+	private static final int QUEUE = PHASES.length;
+	private static final String[] NAMES = new String[PHASES.length + 1];
+	// Deeper phases still count, only their time is not taken off the phase around them
+	private static final int MAX_DEPTH = 16;
+	private final long[] nanos = new long[PHASES.length + 1];
+	private final int[] counts = new int[PHASES.length + 1];
+	// Time spent in the phases nested in each open phase
+	private final long[] nestedNanos = new long[MAX_DEPTH];
+	private int depth;
+	private long startTime;
+
+	static {
+		for (Phase phase : PHASES) {
+			NAMES[phase.ordinal()] = phase.name().toLowerCase(Locale.ROOT);
+		}
+		NAMES[QUEUE] = "queue";
+	}
+
+	private RequestTimings() {
+	}
+
+	public static RequestTimings begin() {
+		RequestTimings timings = OWN.get();
+		for (int i = 0; i < timings.nanos.length; i++) {
+			timings.nanos[i] = 0;
+			timings.counts[i] = 0;
+		}
+		timings.depth = 0;
+		timings.startTime = System.nanoTime();
+		CURRENT.set(timings);
+		return timings;
+	}
+
+	public static void end() {
+		CURRENT.set(null);
+	}
+
+	// null outside of a request
+	public static RequestTimings current() {
+		return CURRENT.get();
+	}
+
+	// Makes the timings current on this thread until detach, returns what was current before
+	public static RequestTimings attach(RequestTimings timings) {
+		RequestTimings previous = CURRENT.get();
+		CURRENT.set(timings);
+		return previous;
+	}
+
+	public static void detach(RequestTimings previous) {
+		CURRENT.set(previous);
+	}
+
+	// Opens a phase, every enter is followed by one exit
+	public void enter() {
+		if (this.depth < MAX_DEPTH) {
+			this.nestedNanos[this.depth] = 0;
+		}
+		this.depth++;
+	}
+
+	// Closes the innermost phase, nanos is its whole duration including the phases nested in it
+	public void exit(Phase phase, long nanos) {
+		long selfNanos = nanos;
+		if (this.depth > 0) {
+			this.depth--;
+			if (this.depth < MAX_DEPTH) {
+				selfNanos -= this.nestedNanos[this.depth];
+			}
+			addNested(nanos);
+		}
+		this.nanos[phase.ordinal()] += Math.max(0, selfNanos);
+		this.counts[phase.ordinal()]++;
+	}
+
+	public void addQueueWait(long nanos) {
+		this.nanos[QUEUE] += nanos;
+		this.counts[QUEUE]++;
+		addNested(nanos);
+	}
+
+	private void addNested(long nanos) {
+		if (this.depth > 0 && this.depth <= MAX_DEPTH) {
+			this.nestedNanos[this.depth - 1] += nanos;
+		}
+	}
+
+	/**
+	 * The Server-Timing header value, one metric per phase that happened and the
+	 * total so far, for example
+	 * {@code password;dur=85.2;desc="1", query;dur=1.4;desc="2", total;dur=90.0}.
+	 * desc is the number of times the phase ran, dur its own time without the
+	 * phases nested in it.
+	 */
+	public String toServerTiming() {
+		StringBuilder header = new StringBuilder(128);
+		for (int i = 0; i < this.nanos.length; i++) {
+			if (this.counts[i] > 0) {
+				appendMillis(header.append(NAMES[i]).append(";dur="), this.nanos[i]).append(";desc=\"")
+						.append(this.counts[i]).append("\", ");
+			}
+		}
+		return appendMillis(header.append("total;dur="), System.nanoTime() - this.startTime).toString();
+	}
+
+	// key=value pairs for a log line, in the same units as the header
+	public String toLogFields() {
+		StringBuilder fields = new StringBuilder(128);
+		for (int i = 0; i < this.nanos.length; i++) {
+			if (this.counts[i] > 0) {
+				appendMillis(fields.append(NAMES[i]).append("_ms="), this.nanos[i]).append(' ').append(NAMES[i])
+						.append("_count=").append(this.counts[i]).append(' ');
+			}
+		}
+		return appendMillis(fields.append("total_ms="), System.nanoTime() - this.startTime).toString();
+	}
+
+	// Milliseconds with one decimal
+	private static StringBuilder appendMillis(StringBuilder builder, long nanos) {
+		long tenths = nanos / 100_000;
+		return builder.append(tenths / 10).append('.').append(tenths % 10);
+	}
+
+}
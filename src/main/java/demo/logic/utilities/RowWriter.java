@@ -0,0 +1,81 @@
+package demo.logic.utilities;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+
+/**
+ * Writes rows one at a time as NDJSON or CSV, nothing is kept once a row was
+ * written. Closing flushes but leaves the output stream open.
+ */
+public class RowWriter implements Closeable {
+	// Flushing a row only moves it to the buffered writer, the socket is written when the buffer fills up
+	private static final JsonFactory JSON_FACTORY = new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+			.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+	private final String[] columns;
+	private final Writer writer;
+	private final JsonGenerator jsonGenerator;
+
+	public RowWriter(ExportFormat format, OutputStream outputStream, String... columns) throws IOException {
+		this.columns = columns.clone();
+		this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+		if (format == ExportFormat.NDJSON) {
+			this.jsonGenerator = JSON_FACTORY.createGenerator(this.writer);
+			this.jsonGenerator.setRootValueSeparator(null);
+		} else {
+			this.jsonGenerator = null;
+			writeCsvLine(this.columns);
+		}
+	}
+
+	public void writeRow(String... values) throws IOException {
+		if (this.jsonGenerator != null) {
+			this.jsonGenerator.writeStartObject();
+			for (int i = 0; i < this.columns.length; i++) {
+				this.jsonGenerator.writeStringField(this.columns[i], values[i]);
+			}
+			this.jsonGenerator.writeEndObject();
+			this.jsonGenerator.flush();
+			this.writer.write('\n');
+		} else {
+			writeCsvLine(values);
+		}
+	}
+
+	private void writeCsvLine(String[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				this.writer.write(',');
+			}
+			String value = values[i];
+			if (value == null) {
+				continue;
+			}
+			if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0
+					&& value.indexOf('\r') < 0) {
+				this.writer.write(value);
+			} else {
+				this.writer.write('"');
+				this.writer.write(value.replace("\"", "\"\""));
+				this.writer.write('"');
+			}
+		}
+		this.writer.write("\r\n");
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (this.jsonGenerator != null) {
+			this.jsonGenerator.close();
+		}
+		this.writer.flush();
+	}
+
+}
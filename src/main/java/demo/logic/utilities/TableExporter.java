@@ -0,0 +1,111 @@
+package demo.logic.utilities;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Timestamp;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import demo.config.DBConfig;
+import demo.config.Permission;
+import demo.logic.exceptions.ServiceOverloadedException;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Streams the result of a query to an output stream row by row.
+ *
+ * The rows are read through a forward-only cursor, fetchSize rows per round
+ * trip, and each one is written out before the next is read. When the client
+ * reads slowly the writes block, and with them the reading of the cursor, so
+ * memory stays the same whatever the size of the table.
+ *
+ * The connection is held until the client has read the last row, so only
+ * maxConcurrentExports exports may run at once and the pool stays free for
+ * the other requests. A caller reserves a {@link Permit} before the response
+ * starts, the exports above the limit are rejected with
+ * {@link ServiceOverloadedException}.
+ */
+@Component
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class TableExporter {
+	private static final int DEFAULT_FETCH_SIZE = 1000;
+	private static final int DEFAULT_MAX_CONCURRENT_EXPORTS = 4;
+	private static final long RETRY_AFTER = 5;
+	private @NonNull JdbcTemplate jdbcTemplate;
+	private @NonNull PlatformTransactionManager transactionManager;
+	private @NonNull XMLReader xmlReader;
+	private final AtomicInteger activeExports = new AtomicInteger();
+
+	public Permit reserve() {
+		DBConfig dbConfig = this.xmlReader.loadConfigFile().getConfiguration(Permission.DB, DBConfig.class);
+		int maxConcurrentExports = dbConfig.getMaxConcurrentExports() > 0 ? dbConfig.getMaxConcurrentExports()
+				: DEFAULT_MAX_CONCURRENT_EXPORTS;
+		if (this.activeExports.incrementAndGet() > maxConcurrentExports) {
+			this.activeExports.decrementAndGet();
+			throw new ServiceOverloadedException("Too many exports are running, please try again later",
+					RETRY_AFTER);
+		}
+		return new Permit();
+	}
+
+	// The columns are written in the order of the select list, under the given names
+	public void export(String sql, ExportFormat format, OutputStream outputStream, String... columns)
+			throws IOException {
+		DBConfig dbConfig = this.xmlReader.loadConfigFile().getConfiguration(Permission.DB, DBConfig.class);
+		int fetchSize = dbConfig.getFetchSize() > 0 ? dbConfig.getFetchSize() : DEFAULT_FETCH_SIZE;
+		TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+		transactionTemplate.setReadOnly(true);
+		try (RowWriter rowWriter = new RowWriter(format, outputStream, columns)) {
+			String[] values = new String[columns.length];
+			transactionTemplate.execute(transactionStatus -> {
+				this.jdbcTemplate.query(connection -> {
+					PreparedStatement statement = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY,
+							ResultSet.CONCUR_READ_ONLY);
+					statement.setFetchSize(fetchSize);
+					return statement;
+				}, resultSet -> {
+					for (int i = 0; i < values.length; i++) {
+						Object value = resultSet.getObject(i + 1);
+						values[i] = value instanceof Timestamp ? ((Timestamp) value).toInstant().toString()
+								: value != null ? value.toString() : null;
+					}
+					try {
+						rowWriter.writeRow(values);
+					} catch (IOException e) {
+						// Usually the client went away, stops reading the cursor
+						throw new UncheckedIOException(e);
+					}
+				});
+				return null;
+			});
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	// Closing more than once gives the place back only once
+	public final class Permit implements AutoCloseable {
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		private Permit() {
+		}
+
+		@Override
+		public void close() {
+			if (this.closed.compareAndSet(false, true)) {
+				activeExports.decrementAndGet();
+			}
+		}
+	}
+
+}
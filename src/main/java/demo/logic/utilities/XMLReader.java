@@ -2,13 +2,16 @@ package demo.logic.utilities;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.context.annotation.PropertySource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.ResourceUtils;
 
 import demo.config.Configurations;
+import demo.config.ConfigurationsChangedEvent;
 import demo.logic.exceptions.InvalidFileException;
 
+import javax.annotation.PreDestroy;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBElement;
 import javax.xml.bind.JAXBException;
@@ -22,29 +25,80 @@ import java.io.FileNotFoundException;
 @PropertySource("classpath:application.properties")
 public class XMLReader {
 	private String configFile;
+	private ApplicationEventPublisher eventPublisher;
+	private JAXBContext jaxbContext;
+	private volatile Configurations configurations;
+	private FileWatcher watcher;
 	
 	@Autowired
-	public XMLReader(@Value("${config.file}") String configFile) {
+	public XMLReader(@Value("${config.file}") String configFile,
+			@Value("${config.reload-interval:5000}") long reloadInterval, ApplicationEventPublisher eventPublisher) {
 		super();
 		this.configFile = configFile;
-		loadConfigFile();
+		this.eventPublisher = eventPublisher;
+		try {
+			this.jaxbContext = JAXBContext.newInstance(Configurations.class);
+		} catch (JAXBException e) {
+			throw new InvalidFileException(e.getMessage());
+		}
+		File xmlFile = getConfigFile();
+		this.configurations = parse(xmlFile);
+		if (reloadInterval > 0) {
+			this.watcher = new FileWatcher("config-file-watcher", xmlFile, reloadInterval, this::reload);
+		}
 	}
 	
 	public Configurations loadConfigFile() {
+		return this.configurations;
+	}
+	
+	private void reload() {
+		// A broken edit keeps the current snapshot, the next valid save replaces it
+		Configurations newConfigurations = parse(getConfigFile());
+		Configurations previousConfigurations = this.configurations;
+		this.configurations = newConfigurations;
+		try {
+			this.eventPublisher.publishEvent(new ConfigurationsChangedEvent(this, newConfigurations));
+		} catch (RuntimeException e) {
+			// A listener rejected it and the ones after it never ran, so the listeners that already applied it are
+			// given the previous snapshot back rather than leaving the config half applied
+			this.configurations = previousConfigurations;
+			this.eventPublisher.publishEvent(new ConfigurationsChangedEvent(this, previousConfigurations));
+			throw e;
+		}
+	}
+	
+	private File getConfigFile() {
 		try {
-			Configurations configurations;
-			File xmlFile = ResourceUtils.getFile("classpath:" + this.configFile);
+			String location = this.configFile.startsWith(ResourceUtils.CLASSPATH_URL_PREFIX)
+					|| this.configFile.startsWith(ResourceUtils.FILE_URL_PREFIX) ? this.configFile
+							: ResourceUtils.CLASSPATH_URL_PREFIX + this.configFile;
+			File xmlFile = ResourceUtils.getFile(location);
 			if (xmlFile == null || !xmlFile.exists()) {
 				throw new InvalidFileException("Config file was not found or empty");
 			}
-			JAXBContext jaxbContext = JAXBContext.newInstance(Configurations.class);
-	        Unmarshaller jaxbUnmarshaller = jaxbContext.createUnmarshaller();
+			return xmlFile;
+		} catch (FileNotFoundException e) {
+			throw new InvalidFileException(e.getMessage());
+		}
+	}
+	
+	private Configurations parse(File xmlFile) {
+		try {
+			// JAXBContext is thread safe, Unmarshaller is not
+	        Unmarshaller jaxbUnmarshaller = this.jaxbContext.createUnmarshaller();
 	        JAXBElement<Configurations> elemConfig = jaxbUnmarshaller.unmarshal(new StreamSource(xmlFile), Configurations.class);
-	        configurations = elemConfig.getValue();
-	        return configurations;
-		} catch (JAXBException | FileNotFoundException e) {
+	        return elemConfig.getValue();
+		} catch (JAXBException e) {
 			throw new InvalidFileException(e.getMessage());
 		}
 	}
+	
+	@PreDestroy
+	public void close() {
+		if (this.watcher != null) {
+			this.watcher.close();
+		}
+	}
 
 }
@@ -1,23 +1,42 @@
 package demo.rest;
 
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import demo.boundary.ClientBoundaryAddNewClient;
 import demo.boundary.ClientBoundaryBase;
+import demo.boundary.PageBoundary;
+import demo.logic.exceptions.ServiceOverloadedException;
 import demo.logic.service.interfaces.ClientService;
+import demo.logic.utilities.PageCursor;
+import demo.logic.utilities.TableExporter;
 import lombok.AllArgsConstructor;
 
 @CrossOrigin(origins = "https://localhost:8443")
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @AllArgsConstructor(onConstructor = @__(@Autowired))
 public class ClientController {
 	private ClientService clientService;
+	private TableExporter tableExporter;
 	
 	@RequestMapping(
 			path = "/addClient",
@@ -28,12 +47,33 @@ public class ClientController {
 		return this.clientService.addNewClient(clientBoundary);	
 	}
 	
+	@RequestMapping(
+			path = "/clients/bulk",
+			method = RequestMethod.POST,
+			consumes = { MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson" },
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	public StreamingResponseBody addClients(InputStream body) {
+		// Rows are read and inserted while the report is written back, neither side is held in memory
+		return outputStream -> this.clientService.addClients(body, outputStream);
+	}
+	
 	@RequestMapping(
 			path = "/clients/getAll",
 			method = RequestMethod.GET,
 			produces = MediaType.APPLICATION_JSON_VALUE)
-	public ClientBoundaryBase[] getAll() {
-		return this.clientService.getAll();
+	public PageBoundary<ClientBoundaryBase> getAll(@RequestParam(name = "cursor", required = false) String cursor,
+			@RequestParam(name = "size", required = false, defaultValue = "" + PageCursor.DEFAULT_PAGE_SIZE) int size) {
+		return this.clientService.getAll(cursor, size);
+	}
+	
+	@RequestMapping(
+			path = "/clients/export",
+			method = RequestMethod.GET)
+	public ResponseEntity<StreamingResponseBody> export(
+			@RequestParam(name = "format", required = false, defaultValue = "ndjson") String format,
+			@RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+		return ExportResponses.stream(this.tableExporter, "clients", ExportResponses.parseFormat(format), acceptEncoding,
+				this.clientService::export);
 	}
 	
 	@RequestMapping(
@@ -42,5 +82,12 @@ public class ClientController {
 	public void deleteAll() {
 		this.clientService.deleteAll();
 	}
+	
+	@ExceptionHandler
+	public ResponseEntity<Map<String, Object>> handleException(ServiceOverloadedException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+				.body(Collections.singletonMap("message", e.getMessage()));
+	}
 
 }
@@ -0,0 +1,62 @@
+package demo.rest;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import demo.logic.exceptions.InvalidInputDataException;
+import demo.logic.utilities.ExportFormat;
+import demo.logic.utilities.TableExporter;
+
+final class ExportResponses {
+	private static final int GZIP_BUFFER_SIZE = 8192;
+
+	private ExportResponses() {
+	}
+
+	interface Export {
+		void writeTo(ExportFormat format, OutputStream outputStream) throws IOException;
+	}
+
+	static ExportFormat parseFormat(String format) {
+		try {
+			return ExportFormat.valueOf(format.toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			throw new InvalidInputDataException("Unknown export format " + format);
+		}
+	}
+
+	// The body is written on the async request thread while the rows are read, nothing is buffered up front.
+	// The place is taken here so a busy server answers 503 before the response starts
+	static ResponseEntity<StreamingResponseBody> stream(TableExporter tableExporter, String name, ExportFormat format,
+			String acceptEncoding, Export export) {
+		TableExporter.Permit permit = tableExporter.reserve();
+		boolean gzip = acceptEncoding != null && acceptEncoding.toLowerCase(Locale.ROOT).contains("gzip");
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+				.contentType(MediaType.parseMediaType(format.getContentType() + ";charset=UTF-8"))
+				.header(HttpHeaders.CONTENT_DISPOSITION,
+						"attachment; filename=\"" + name + "." + format.getExtension() + "\"")
+				.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		if (gzip) {
+			response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+		}
+		return response.body(outputStream -> {
+			try (TableExporter.Permit exportPermit = permit) {
+				if (gzip) {
+					GZIPOutputStream gzipOutputStream = new GZIPOutputStream(outputStream, GZIP_BUFFER_SIZE);
+					export.writeTo(format, gzipOutputStream);
+					gzipOutputStream.finish();
+				} else {
+					export.writeTo(format, outputStream);
+				}
+			}
+		});
+	}
+
+}
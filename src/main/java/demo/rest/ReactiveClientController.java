@@ -0,0 +1,70 @@
+package demo.rest;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import demo.boundary.ClientBoundaryAddNewClient;
+import demo.boundary.ClientBoundaryBase;
+import demo.boundary.PageBoundary;
+import demo.logic.service.interfaces.ReactiveClientService;
+import demo.logic.utilities.PageCursor;
+import lombok.AllArgsConstructor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The client endpoints of ClientController on WebFlux, with the same paths and
+ * JSON. Active when the application is started with
+ * spring.main.web-application-type=reactive. Bulk import and export are only
+ * on the servlet stack, listing can be streamed from /clients/stream instead.
+ */
+@CrossOrigin(origins = "https://localhost:8443")
+@RestController
+@ConditionalOnWebApplication(type = Type.REACTIVE)
+@AllArgsConstructor(onConstructor = @__(@Autowired))
+public class ReactiveClientController {
+	private ReactiveClientService clientService;
+	
+	@RequestMapping(
+			path = "/addClient",
+			method = RequestMethod.POST,
+			consumes = MediaType.APPLICATION_JSON_VALUE,
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	public Mono<ClientBoundaryBase> addNewClient(@RequestBody ClientBoundaryAddNewClient clientBoundary) {
+		return this.clientService.addNewClient(clientBoundary);
+	}
+	
+	@RequestMapping(
+			path = "/clients/getAll",
+			method = RequestMethod.GET,
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	public Mono<PageBoundary<ClientBoundaryBase>> getAll(@RequestParam(name = "cursor", required = false) String cursor,
+			@RequestParam(name = "size", required = false, defaultValue = "" + PageCursor.DEFAULT_PAGE_SIZE) int size) {
+		return this.clientService.getAll(cursor, size);
+	}
+	
+	@RequestMapping(
+			path = "/clients/stream",
+			method = RequestMethod.GET,
+			produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public Flux<ClientBoundaryBase> stream() {
+		// One JSON object per line, written as the rows arrive
+		return this.clientService.streamAll();
+	}
+	
+	@RequestMapping(
+			path = "/clients/deleteAll",
+			method = RequestMethod.DELETE)
+	public Mono<Void> deleteAll() {
+		return this.clientService.deleteAll();
+	}
+
+}
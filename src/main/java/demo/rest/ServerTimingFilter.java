@@ -0,0 +1,98 @@
+package demo.rest;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.http.server.ServerHttpResponse;
+import org.springframework.web.bind.annotation.ControllerAdvice;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyAdvice;
+
+import demo.config.ConfigurationsChangedEvent;
+import demo.config.GeneralConfig;
+import demo.config.Permission;
+import demo.logic.utilities.RequestTimings;
+import demo.logic.utilities.XMLReader;
+import lombok.NonNull;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Collects the RequestTimings of each request and reports them as a
+ * Server-Timing header, and for a sample of the requests as a log line.
+ *
+ * The header has to be set before the body is written, so it is added when
+ * the body is, in beforeBodyWrite. Streamed responses get no header. The
+ * header goes to every caller, so serverTiming is off in the shipped config.
+ */
+@ControllerAdvice
+@RequiredArgsConstructor(onConstructor = @__(@Autowired))
+public class ServerTimingFilter extends OncePerRequestFilter implements ResponseBodyAdvice<Object> {
+	private static final String HEADER = "Server-Timing";
+	private static final Logger LOGGER = LoggerFactory.getLogger(ServerTimingFilter.class);
+	private @NonNull XMLReader xmlReader;
+	private volatile GeneralConfig generalConfig;
+
+	@PostConstruct
+	private void init() {
+		this.generalConfig = this.xmlReader.loadConfigFile().getConfiguration(Permission.GENERAL,
+				GeneralConfig.class);
+	}
+
+	@EventListener(ConfigurationsChangedEvent.class)
+	private void onConfigurationsChanged(ConfigurationsChangedEvent event) {
+		this.generalConfig = event.getConfigurations().getConfiguration(Permission.GENERAL, GeneralConfig.class);
+	}
+
+	@Override
+	protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+			throws ServletException, IOException {
+		GeneralConfig generalConfig = this.generalConfig;
+		boolean log = generalConfig.getTimingLogSampleRate() > 0
+				&& ThreadLocalRandom.current().nextDouble() < generalConfig.getTimingLogSampleRate();
+		if (!generalConfig.isServerTiming() && !log) {
+			filterChain.doFilter(request, response);
+			return;
+		}
+		RequestTimings timings = RequestTimings.begin();
+		try {
+			filterChain.doFilter(request, response);
+		} finally {
+			RequestTimings.end();
+			if (log) {
+				LOGGER.info("method={} uri={} status={} {}", request.getMethod(), request.getRequestURI(),
+						response.getStatus(), timings.toLogFields());
+			}
+		}
+	}
+
+	@Override
+	public boolean supports(MethodParameter returnType, Class<? extends HttpMessageConverter<?>> converterType) {
+		return true;
+	}
+
+	@Override
+	public Object beforeBodyWrite(Object body, MethodParameter returnType, MediaType selectedContentType,
+			Class<? extends HttpMessageConverter<?>> selectedConverterType, ServerHttpRequest request,
+			ServerHttpResponse response) {
+		RequestTimings timings = RequestTimings.current();
+		if (timings != null && this.generalConfig.isServerTiming()) {
+			response.getHeaders().set(HEADER, timings.toServerTiming());
+		}
+		return body;
+	}
+
+}
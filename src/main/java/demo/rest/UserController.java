@@ -1,33 +1,52 @@
 package demo.rest;
 
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
+
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnWebApplication.Type;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import demo.boundary.PageBoundary;
 import demo.boundary.UserBoundaryBase;
 import demo.boundary.UserBoundaryBaseWithPassword;
 import demo.boundary.UserBoundaryPasswordChange;
 import demo.boundary.UserBoundarySignup;
 import demo.logic.exceptions.BadRequestException;
 import demo.logic.exceptions.InternalErrorException;
+import demo.logic.exceptions.ServiceOverloadedException;
+import demo.logic.exceptions.TooManyRequestsException;
+import demo.logic.service.RateLimiter;
 import demo.logic.service.interfaces.UserService;
+import demo.logic.utilities.PageCursor;
+import demo.logic.utilities.TableExporter;
 import lombok.AllArgsConstructor;
 
 @CrossOrigin(origins = "https://localhost:8443")
 @RestController
+@ConditionalOnWebApplication(type = Type.SERVLET)
 @AllArgsConstructor(onConstructor = @__(@Autowired))
 public class UserController {
 	private UserService userService;
+	private RateLimiter rateLimiter;
+	private TableExporter tableExporter;
 	
 	@RequestMapping(
 			path = "/signup",
@@ -38,12 +57,24 @@ public class UserController {
 		return this.userService.signup(userBoundary);	
 	}
 	
+	@RequestMapping(
+			path = "/users/bulk",
+			method = RequestMethod.POST,
+			consumes = { MediaType.APPLICATION_JSON_VALUE, "application/x-ndjson" },
+			produces = MediaType.APPLICATION_JSON_VALUE)
+	public StreamingResponseBody addUsers(InputStream body) {
+		// The report is written chunk by chunk, so the caller can follow the progress
+		return outputStream -> this.userService.addUsers(body, outputStream);
+	}
+	
 	@RequestMapping(
 			path = "/login",
 			method = RequestMethod.POST,
 			consumes = MediaType.APPLICATION_JSON_VALUE,
 			produces = MediaType.APPLICATION_JSON_VALUE)
-	public UserBoundaryBase login(@RequestBody UserBoundaryBaseWithPassword userBoundary) {
+	public UserBoundaryBase login(@RequestBody UserBoundaryBaseWithPassword userBoundary,
+			HttpServletRequest request) {
+		this.rateLimiter.check(request.getRemoteAddr(), userBoundary.getUsername());
 		return this.userService.login(userBoundary);
 	}
 	
@@ -52,7 +83,9 @@ public class UserController {
 			method = RequestMethod.POST,
 			consumes = MediaType.APPLICATION_JSON_VALUE,
 			produces = MediaType.APPLICATION_JSON_VALUE)
-	public UserBoundaryBase changePassword(@RequestBody UserBoundaryPasswordChange userBoundary) {
+	public UserBoundaryBase changePassword(@RequestBody UserBoundaryPasswordChange userBoundary,
+			HttpServletRequest request) {
+		this.rateLimiter.check(request.getRemoteAddr(), userBoundary.getUsername());
 		return this.userService.changePassword(userBoundary);	
 	}
 	
@@ -61,7 +94,9 @@ public class UserController {
 			method = RequestMethod.POST,
 			consumes = MediaType.APPLICATION_JSON_VALUE,
 			produces = MediaType.APPLICATION_JSON_VALUE)
-	public UserBoundaryBase forgotPassword(@RequestBody UserBoundaryBase userBoundary) {
+	public UserBoundaryBase forgotPassword(@RequestBody UserBoundaryBase userBoundary,
+			HttpServletRequest request) {
+		this.rateLimiter.check(request.getRemoteAddr(), userBoundary.getUsername());
 		return this.userService.forgotPassword(userBoundary);	
 	}
 	
@@ -69,8 +104,19 @@ public class UserController {
 			path = "/users/getAll",
 			method = RequestMethod.GET,
 			produces = MediaType.APPLICATION_JSON_VALUE)
-	public UserBoundaryBase[] getAll() {
-		return this.userService.getAll();
+	public PageBoundary<UserBoundaryBase> getAll(@RequestParam(name = "cursor", required = false) String cursor,
+			@RequestParam(name = "size", required = false, defaultValue = "" + PageCursor.DEFAULT_PAGE_SIZE) int size) {
+		return this.userService.getAll(cursor, size);
+	}
+	
+	@RequestMapping(
+			path = "/users/export",
+			method = RequestMethod.GET)
+	public ResponseEntity<StreamingResponseBody> export(
+			@RequestParam(name = "format", required = false, defaultValue = "ndjson") String format,
+			@RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+		return ExportResponses.stream(this.tableExporter, "users", ExportResponses.parseFormat(format), acceptEncoding,
+				this.userService::export);
 	}
 	
 	@RequestMapping(
@@ -99,4 +145,18 @@ public class UserController {
 		}
 		return Collections.singletonMap("message", error);
 	}
+	
+	@ExceptionHandler
+	public ResponseEntity<Map<String, Object>> handleException(ServiceOverloadedException e) {
+		return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+				.body(Collections.singletonMap("message", e.getMessage()));
+	}
+	
+	@ExceptionHandler
+	public ResponseEntity<Map<String, Object>> handleException(TooManyRequestsException e) {
+		return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+				.header(HttpHeaders.RETRY_AFTER, String.valueOf(e.getRetryAfterSeconds()))
+				.body(Collections.singletonMap("message", e.getMessage()));
+	}
 }
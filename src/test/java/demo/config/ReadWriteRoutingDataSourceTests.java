@@ -0,0 +1,58 @@
+package demo.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Collections;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+class ReadWriteRoutingDataSourceTests {
+	private JdbcTemplate jdbcTemplate;
+	private DataSourceTransactionManager transactionManager;
+
+	@BeforeEach
+	void setUp() {
+		DataSource primary = database("primary");
+		DataSource replica = database("replica");
+		DataSource dataSource = ReadWriteRoutingDataSource.create(primary, Collections.singletonList(replica));
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.transactionManager = new DataSourceTransactionManager(dataSource);
+	}
+
+	@Test
+	void readOnlyTransactionsUseTheReplica() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+		transactionTemplate.setReadOnly(true);
+		String database = transactionTemplate.execute(transactionStatus -> currentDatabase());
+		assertThat(database).isEqualTo("replica");
+	}
+
+	@Test
+	void writesUseThePrimary() {
+		TransactionTemplate transactionTemplate = new TransactionTemplate(this.transactionManager);
+		String database = transactionTemplate.execute(transactionStatus -> currentDatabase());
+		assertThat(database).isEqualTo("primary");
+		assertThat(currentDatabase()).isEqualTo("primary");
+	}
+
+	private String currentDatabase() {
+		return this.jdbcTemplate.queryForObject("SELECT name FROM database_name", String.class);
+	}
+
+	private static DataSource database(String name) {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS database_name (name VARCHAR(16))");
+		jdbcTemplate.execute("DELETE FROM database_name");
+		jdbcTemplate.update("INSERT INTO database_name VALUES (?)", name);
+		return dataSource;
+	}
+
+}
@@ -0,0 +1,77 @@
+package demo.logic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import demo.boundary.ClientBoundaryBase;
+import demo.boundary.PageBoundary;
+
+class ClientKeysetTests {
+	private JdbcTemplate jdbcTemplate;
+	private NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+
+	@BeforeEach
+	void setUp() {
+		DriverManagerDataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:client-keyset;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.namedParameterJdbcTemplate = new NamedParameterJdbcTemplate(dataSource);
+		this.jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS clients (id VARCHAR(255) PRIMARY KEY, client_name VARCHAR(255))");
+		this.jdbcTemplate.execute("DELETE FROM clients");
+	}
+
+	@Test
+	void pageEndingOnNullNameContinuesWithTheRest() {
+		insert("1", null);
+		insert("2", null);
+		insert("3", null);
+		insert("4", "Alice");
+		insert("5", "Alice");
+		insert("6", "Bob");
+
+		List<String> names = new ArrayList<>();
+		int pages = 0;
+		String cursor = null;
+		do {
+			PageBoundary<ClientBoundaryBase> page = page(cursor, 2);
+			page.getItems().forEach(client -> names.add(client.getClientName()));
+			cursor = page.getNext();
+			pages++;
+		} while (cursor != null);
+
+		assertThat(names).containsExactly(null, null, null, "Alice", "Alice", "Bob");
+		assertThat(pages).isEqualTo(3);
+	}
+
+	@Test
+	void lastPageHasNoCursor() {
+		insert("1", null);
+		insert("2", "Alice");
+
+		PageBoundary<ClientBoundaryBase> page = page(null, 2);
+
+		assertThat(page.getItems()).hasSize(2);
+		assertThat(page.getNext()).isNull();
+	}
+
+	private PageBoundary<ClientBoundaryBase> page(String cursor, int size) {
+		ClientKeyset keyset = ClientKeyset.after(cursor);
+		List<String[]> rows = this.namedParameterJdbcTemplate.query(keyset.getSql() + " LIMIT " + (size + 1),
+				keyset.getParameters(), (resultSet, rowNumber) -> new String[] { resultSet.getString("client_name"),
+						resultSet.getString("id") });
+		return ClientKeyset.toPage(rows, size);
+	}
+
+	private void insert(String id, String clientName) {
+		this.jdbcTemplate.update("INSERT INTO clients (id, client_name) VALUES (?, ?)", id, clientName);
+	}
+
+}
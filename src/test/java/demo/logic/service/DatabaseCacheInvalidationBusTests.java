@@ -0,0 +1,59 @@
+package demo.logic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import demo.logic.utilities.XMLReader;
+
+class DatabaseCacheInvalidationBusTests {
+	private JdbcTemplate jdbcTemplate;
+	private DatabaseCacheInvalidationBus bus;
+	private final List<String> received = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		DataSource dataSource = new DriverManagerDataSource(
+				"jdbc:h2:mem:cache-invalidations;MODE=MySQL;DB_CLOSE_DELAY=-1", "sa", "");
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS cache_invalidations (id BIGINT PRIMARY KEY,"
+				+ " cache_name VARCHAR(255), cache_key VARCHAR(255), node VARCHAR(255), creation_timestamp TIMESTAMP)");
+		this.jdbcTemplate.execute("DELETE FROM cache_invalidations");
+		this.bus = new DatabaseCacheInvalidationBus(new XMLReader("config-test.xml", 0, event -> {
+		}), this.jdbcTemplate);
+		this.bus.subscribe((cacheName, keys) -> this.received.addAll(keys));
+	}
+
+	@Test
+	void rowCommittedAfterALargerIdIsDelivered() {
+		insert(1, "a");
+		insert(3, "c");
+		poll();
+		// The insert of id 2 started before the one of id 3 but committed after it
+		insert(2, "b");
+		poll();
+		poll();
+
+		assertThat(this.received).containsExactly("a", "c", "b");
+	}
+
+	private void insert(long id, String key) {
+		this.jdbcTemplate.update("INSERT INTO cache_invalidations VALUES (?, ?, ?, ?, ?)", id, UserCache.NAME, key,
+				"other-node", new Timestamp(System.currentTimeMillis()));
+	}
+
+	private void poll() {
+		ReflectionTestUtils.invokeMethod(this.bus, "poll");
+	}
+
+}
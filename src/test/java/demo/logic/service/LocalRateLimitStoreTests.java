@@ -0,0 +1,64 @@
+package demo.logic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import demo.config.Configurations;
+import demo.config.Permission;
+import demo.config.RateLimitConfig;
+import demo.logic.utilities.XMLReader;
+
+class LocalRateLimitStoreTests {
+	private LocalRateLimitStore store;
+
+	@BeforeEach
+	void setUp() {
+		Configurations configurations = mock(Configurations.class);
+		when(configurations.getConfiguration(Permission.RATE_LIMIT, RateLimitConfig.class))
+				.thenReturn(new RateLimitConfig(true, 0, 0, 0, 0, 0, 0, 0));
+		XMLReader xmlReader = mock(XMLReader.class);
+		when(xmlReader.loadConfigFile()).thenReturn(configurations);
+		this.store = new LocalRateLimitStore(xmlReader);
+		ReflectionTestUtils.invokeMethod(this.store, "init");
+	}
+
+	@Test
+	void burstIsAllowedBackToBack() {
+		for (int i = 0; i < 3; i++) {
+			assertThat(this.store.tryAcquire("key", 3, 60_000)).isZero();
+		}
+		// The next token is a whole refill interval away
+		assertThat(this.store.tryAcquire("key", 3, 60_000)).isBetween(59_000L, 60_000L);
+	}
+
+	@Test
+	void keysHaveTheirOwnBuckets() {
+		assertThat(this.store.tryAcquire("a", 1, 60_000)).isZero();
+		assertThat(this.store.tryAcquire("a", 1, 60_000)).isPositive();
+		assertThat(this.store.tryAcquire("b", 1, 60_000)).isZero();
+	}
+
+	@Test
+	void tokensRefillOverTime() throws InterruptedException {
+		assertThat(this.store.tryAcquire("key", 1, 50)).isZero();
+		assertThat(this.store.tryAcquire("key", 1, 50)).isPositive();
+		Thread.sleep(60);
+		assertThat(this.store.tryAcquire("key", 1, 50)).isZero();
+	}
+
+	@Test
+	void rejectedRequestsDoNotTakeTokens() throws InterruptedException {
+		assertThat(this.store.tryAcquire("key", 1, 50)).isZero();
+		for (int i = 0; i < 10; i++) {
+			assertThat(this.store.tryAcquire("key", 1, 50)).isPositive();
+		}
+		Thread.sleep(60);
+		assertThat(this.store.tryAcquire("key", 1, 50)).isZero();
+	}
+
+}
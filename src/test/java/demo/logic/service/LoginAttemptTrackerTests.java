@@ -0,0 +1,117 @@
+package demo.logic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import demo.config.Configurations;
+import demo.config.PasswordConfig;
+import demo.config.Permission;
+import demo.logic.utilities.XMLReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class LoginAttemptTrackerTests {
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private DataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private XMLReader xmlReader;
+	private LoginAttemptTracker tracker;
+
+	@BeforeEach
+	void setUp() {
+		this.dataSource = new DriverManagerDataSource("jdbc:h2:mem:login-attempts;MODE=MySQL;DB_CLOSE_DELAY=-1",
+				"sa", "");
+		this.jdbcTemplate = new JdbcTemplate(this.dataSource);
+		this.jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS users (username VARCHAR(255) PRIMARY KEY,"
+				+ " number_of_login_attempt INT)");
+		this.jdbcTemplate.execute("DELETE FROM users");
+		this.jdbcTemplate.update("INSERT INTO users VALUES ('alice', 0), ('bob', 2)");
+		PasswordConfig passwordConfig = mock(PasswordConfig.class);
+		when(passwordConfig.getLoginAttempts()).thenReturn(3);
+		when(passwordConfig.getLoginAttemptWindow()).thenReturn(3600L);
+		// Only the explicit flush on close writes
+		when(passwordConfig.getLoginAttemptFlushInterval()).thenReturn(3_600_000L);
+		Configurations configurations = mock(Configurations.class);
+		when(configurations.getConfiguration(Permission.PASSWORD, PasswordConfig.class)).thenReturn(passwordConfig);
+		this.xmlReader = mock(XMLReader.class);
+		when(this.xmlReader.loadConfigFile()).thenReturn(configurations);
+		this.tracker = start();
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.tracker.close();
+	}
+
+	@Test
+	void failuresAreWrittenBehind() {
+		this.tracker.recordFailure("alice", 0);
+		this.tracker.recordFailure("alice", 0);
+
+		assertThat(this.tracker.getAttempts("alice", 0)).isEqualTo(2);
+		assertThat(storedAttempts("alice")).isZero();
+		this.tracker.close();
+		assertThat(storedAttempts("alice")).isEqualTo(2);
+	}
+
+	@Test
+	void lockoutIsWrittenRightAway() {
+		for (int i = 0; i < 4; i++) {
+			this.tracker.recordFailure("alice", 0);
+		}
+
+		assertThat(storedAttempts("alice")).isEqualTo(4);
+		assertThat(this.meterRegistry.counter("login.lockouts").count()).isEqualTo(1);
+	}
+
+	@Test
+	void storedCountersAreLoadedOnStartup() {
+		assertThat(this.tracker.getAttempts("bob", 0)).isEqualTo(2);
+
+		this.tracker.recordFailure("bob", 2);
+		assertThat(this.tracker.getAttempts("bob", 2)).isEqualTo(3);
+	}
+
+	@Test
+	void successResetsTheStoredCounter() {
+		this.tracker.recordSuccess("bob");
+
+		assertThat(this.tracker.getAttempts("bob", 0)).isZero();
+		this.tracker.close();
+		assertThat(storedAttempts("bob")).isZero();
+	}
+
+	@Test
+	void successWithoutFailuresWritesNothing() {
+		this.jdbcTemplate.update("UPDATE users SET number_of_login_attempt = 1 WHERE username = 'alice'");
+		this.tracker.recordSuccess("alice");
+		this.tracker.close();
+
+		// alice was not in memory, another node's counter is left alone
+		assertThat(storedAttempts("alice")).isEqualTo(1);
+	}
+
+	private LoginAttemptTracker start() {
+		LoginAttemptTracker tracker = new LoginAttemptTracker(this.xmlReader, this.jdbcTemplate,
+				new DataSourceTransactionManager(this.dataSource), this.meterRegistry);
+		ReflectionTestUtils.invokeMethod(tracker, "init");
+		return tracker;
+	}
+
+	private int storedAttempts(String username) {
+		return this.jdbcTemplate.queryForObject("SELECT number_of_login_attempt FROM users WHERE username = ?",
+				Integer.class, username);
+	}
+
+}
@@ -0,0 +1,108 @@
+package demo.logic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+import java.util.Date;
+
+import javax.mail.internet.MimeMessage;
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.icegreen.greenmail.configuration.GreenMailConfiguration;
+import com.icegreen.greenmail.junit5.GreenMailExtension;
+import com.icegreen.greenmail.util.GreenMailUtil;
+import com.icegreen.greenmail.util.ServerSetupTest;
+
+import demo.config.ConfigurationsChangedEvent;
+import demo.data.MailOutboxEntity;
+import demo.data.MailOutboxStatus;
+import demo.logic.utilities.Constants;
+import demo.logic.utilities.MailTemplateRegistry;
+import demo.logic.utilities.OutboxCipher;
+import demo.logic.utilities.PerformanceMonitor;
+import demo.logic.utilities.XMLReader;
+import freemarker.template.Configuration;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class MailServiceImplTests {
+	@RegisterExtension
+	static GreenMailExtension greenMail = new GreenMailExtension(ServerSetupTest.SMTP)
+			.withConfiguration(GreenMailConfiguration.aConfig().withUser("test", "test"));
+	private XMLReader xmlReader;
+	private MailServiceImpl mailService;
+
+	@BeforeEach
+	void setUp() {
+		XMLReader xmlReader = new XMLReader("config-test.xml", 0, event -> {
+		});
+		this.xmlReader = xmlReader;
+		Configuration configuration = new Configuration(Configuration.VERSION_2_3_30);
+		configuration.setClassForTemplateLoading(MailServiceImplTests.class, "/templates");
+		this.mailService = new MailServiceImpl(new JavaMailSenderImpl(), new MailTemplateRegistry(configuration), xmlReader,
+				mock(EntityManager.class), mock(PlatformTransactionManager.class), event -> {
+				}, new PerformanceMonitor(new SimpleMeterRegistry()));
+		ReflectionTestUtils.invokeMethod(this.mailService, "init");
+	}
+
+	@Test
+	void sendsQueuedResetPasswordMail() throws Exception {
+		MailOutboxEntity mail = MailOutboxEntity.builder().id(1L).mailType(MailServiceImpl.RESET_PASSWORD_MAIL_TYPE)
+				.recipient("user@communicationltd.com").subject(Constants.RESET_PASSWORD)
+				.content(this.mailService.encryptContent("Aa1!Aa1!Aa1!")).status(MailOutboxStatus.SENDING).attempts(1)
+				.creationTimestamp(new Date()).build();
+
+		this.mailService.send(mail);
+
+		MimeMessage[] messages = greenMail.getReceivedMessages();
+		assertThat(messages).hasSize(1);
+		assertThat(messages[0].getSubject()).isEqualTo(Constants.RESET_PASSWORD);
+		assertThat(GreenMailUtil.getBody(messages[0])).contains("Aa1!Aa1!Aa1!");
+	}
+
+	@Test
+	void configChangeReplacesTheSenderInsteadOfChangingIt() {
+		JavaMailSenderImpl before = (JavaMailSenderImpl) ReflectionTestUtils.getField(this.mailService, "mailSender");
+
+		ReflectionTestUtils.invokeMethod(this.mailService, "onConfigurationsChanged",
+				new ConfigurationsChangedEvent(this, this.xmlReader.loadConfigFile()));
+
+		JavaMailSenderImpl after = (JavaMailSenderImpl) ReflectionTestUtils.getField(this.mailService, "mailSender");
+		assertThat(after).isNotSameAs(before);
+		assertThat(after.getHost()).isEqualTo("localhost");
+		assertThat(after.getPort()).isEqualTo(3025);
+	}
+
+	@Test
+	void queuedResetPasswordIsNotStoredInTheClear() {
+		String content = this.mailService.encryptContent("Aa1!Aa1!Aa1!");
+
+		assertThat(content).doesNotContain("Aa1!Aa1!Aa1!");
+		assertThat(content).isNotEqualTo(this.mailService.encryptContent("Aa1!Aa1!Aa1!"));
+	}
+
+	@Test
+	void queuedResetPasswordOfAnotherKeyIsNotSent() {
+		MailOutboxEntity mail = MailOutboxEntity.builder().id(1L).mailType(MailServiceImpl.RESET_PASSWORD_MAIL_TYPE)
+				.recipient("user@communicationltd.com").subject(Constants.RESET_PASSWORD)
+				.content(OutboxCipher.create("ZmVkY2JhOTg3NjU0MzIxMGZlZGNiYTk4NzY1NDMyMTA=").encrypt("Aa1!Aa1!Aa1!"))
+				.status(MailOutboxStatus.SENDING).attempts(1).creationTimestamp(new Date()).build();
+
+		assertThatThrownBy(() -> this.mailService.send(mail)).isInstanceOf(OutboxCipher.DecryptionException.class);
+		assertThat(greenMail.getReceivedMessages()).isEmpty();
+	}
+
+	@Test
+	void missingOutboxKeyIsRejected() {
+		assertThatThrownBy(() -> OutboxCipher.create("")).isInstanceOf(IllegalArgumentException.class)
+				.hasMessageContaining("mail.outboxKey");
+	}
+
+}
@@ -0,0 +1,90 @@
+package demo.logic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import demo.config.Configurations;
+import demo.config.Permission;
+import demo.config.RateLimitConfig;
+import demo.logic.exceptions.TooManyRequestsException;
+import demo.logic.utilities.XMLReader;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class RateLimiterTests {
+	private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@Test
+	void addressIsLimitedAcrossUsernames() {
+		RateLimiter rateLimiter = rateLimiter(new RateLimitConfig(true, 2, 1, 5, 1, 100, 1, 0));
+		rateLimiter.check("10.0.0.1", "alice");
+		rateLimiter.check("10.0.0.1", "bob");
+
+		assertThatThrownBy(() -> rateLimiter.check("10.0.0.1", "carol"))
+				.isInstanceOf(TooManyRequestsException.class);
+		rateLimiter.check("10.0.0.2", "carol");
+		assertThat(this.meterRegistry.counter("rate.limit.rejected", "key", "ip").count()).isEqualTo(1);
+	}
+
+	@Test
+	void usernameIsLimitedPerAddress() {
+		RateLimiter rateLimiter = rateLimiter(new RateLimitConfig(true, 10, 1, 2, 1, 100, 1, 0));
+		rateLimiter.check("10.0.0.1", "alice");
+		rateLimiter.check("10.0.0.1", "alice");
+
+		assertThatThrownBy(() -> rateLimiter.check("10.0.0.1", "alice"))
+				.isInstanceOf(TooManyRequestsException.class);
+		assertThat(this.meterRegistry.counter("rate.limit.rejected", "key", "username").count()).isEqualTo(1);
+		// Guessing alice's password from one address does not lock her out of hers
+		rateLimiter.check("10.0.0.2", "alice");
+	}
+
+	@Test
+	void usernameIsLimitedAcrossAddresses() {
+		RateLimiter rateLimiter = rateLimiter(new RateLimitConfig(true, 10, 1, 2, 1, 3, 1, 0));
+		rateLimiter.check("10.0.0.1", "alice");
+		rateLimiter.check("10.0.0.2", "alice");
+		rateLimiter.check("10.0.0.3", "alice");
+
+		assertThatThrownBy(() -> rateLimiter.check("10.0.0.4", "alice"))
+				.isInstanceOf(TooManyRequestsException.class);
+		assertThat(this.meterRegistry.counter("rate.limit.rejected", "key", "account").count()).isEqualTo(1);
+		rateLimiter.check("10.0.0.4", "bob");
+	}
+
+	@Test
+	void rejectionCarriesTheSecondsUntilTheNextToken() {
+		RateLimiter rateLimiter = rateLimiter(new RateLimitConfig(true, 1, 2, 5, 1, 100, 1, 0));
+		rateLimiter.check("10.0.0.1", null);
+
+		assertThatThrownBy(() -> rateLimiter.check("10.0.0.1", null))
+				.isInstanceOfSatisfying(TooManyRequestsException.class,
+						e -> assertThat(e.getRetryAfterSeconds()).isEqualTo(30));
+	}
+
+	@Test
+	void disabledLimiterLetsEverythingThrough() {
+		RateLimiter rateLimiter = rateLimiter(new RateLimitConfig(false, 1, 1, 1, 1, 100, 1, 0));
+		for (int i = 0; i < 10; i++) {
+			rateLimiter.check("10.0.0.1", "alice");
+		}
+	}
+
+	private RateLimiter rateLimiter(RateLimitConfig rateLimitConfig) {
+		Configurations configurations = mock(Configurations.class);
+		when(configurations.getConfiguration(Permission.RATE_LIMIT, RateLimitConfig.class)).thenReturn(rateLimitConfig);
+		XMLReader xmlReader = mock(XMLReader.class);
+		when(xmlReader.loadConfigFile()).thenReturn(configurations);
+		LocalRateLimitStore rateLimitStore = new LocalRateLimitStore(xmlReader);
+		ReflectionTestUtils.invokeMethod(rateLimitStore, "init");
+		RateLimiter rateLimiter = new RateLimiter(xmlReader, rateLimitStore, this.meterRegistry);
+		ReflectionTestUtils.invokeMethod(rateLimiter, "init");
+		return rateLimiter;
+	}
+
+}
@@ -0,0 +1,90 @@
+package demo.logic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.r2dbc.core.DatabaseClient;
+
+import demo.boundary.ClientBoundaryAddNewClient;
+import demo.boundary.ClientBoundaryBase;
+import demo.boundary.PageBoundary;
+import demo.logic.exceptions.InternalErrorException;
+import io.r2dbc.spi.ConnectionFactories;
+
+// r2dbc-h2 in place of MySQL
+class ReactiveClientServiceImplTests {
+	private ReactiveClientServiceImpl clientService;
+
+	@BeforeEach
+	void setUp() {
+		DatabaseClient databaseClient = DatabaseClient
+				.create(ConnectionFactories.get("r2dbc:h2:mem:///clients?options=MODE=MySQL;DB_CLOSE_DELAY=-1"));
+		databaseClient.sql("CREATE TABLE IF NOT EXISTS clients (id VARCHAR(255) PRIMARY KEY, client_name VARCHAR(255),"
+				+ " creation_timestamp TIMESTAMP, last_name VARCHAR(255), phone_number VARCHAR(255))").then().block();
+		this.clientService = new ReactiveClientServiceImpl(databaseClient);
+		this.clientService.deleteAll().block();
+	}
+
+	@Test
+	void pagesFollowTheCursor() {
+		addClient("3", "Carol");
+		addClient("1", "Alice");
+		addClient("2", "Bob");
+
+		PageBoundary<ClientBoundaryBase> first = this.clientService.getAll(null, 2).block();
+		assertThat(names(first.getItems())).containsExactly("Alice", "Bob");
+		assertThat(first.getNext()).isNotNull();
+
+		PageBoundary<ClientBoundaryBase> second = this.clientService.getAll(first.getNext(), 2).block();
+		assertThat(names(second.getItems())).containsExactly("Carol");
+		assertThat(second.getNext()).isNull();
+	}
+
+	@Test
+	void pageEndingOnANullNameContinuesWithTheRest() {
+		addClient("4", "Alice");
+		addClient("2", null);
+		addClient("1", null);
+		addClient("3", null);
+
+		PageBoundary<ClientBoundaryBase> first = this.clientService.getAll(null, 2).block();
+		assertThat(names(first.getItems())).containsExactly(null, null);
+
+		PageBoundary<ClientBoundaryBase> second = this.clientService.getAll(first.getNext(), 2).block();
+		assertThat(names(second.getItems())).containsExactly(null, "Alice");
+		assertThat(second.getNext()).isNull();
+	}
+
+	@Test
+	void streamReturnsEveryClientInOrder() {
+		addClient("2", "Bob");
+		addClient("1", null);
+		addClient("3", "Alice");
+
+		assertThat(names(this.clientService.streamAll().collectList().block())).containsExactly(null, "Alice", "Bob");
+	}
+
+	@Test
+	void existingIdIsRejected() {
+		addClient("1", "Alice");
+
+		assertThatThrownBy(() -> addClient("1", "Bob")).isInstanceOf(InternalErrorException.class);
+		assertThat(names(this.clientService.streamAll().collectList().block())).containsExactly("Alice");
+	}
+
+	private void addClient(String id, String clientName) {
+		ClientBoundaryBase added = this.clientService.addNewClient(ClientBoundaryAddNewClient.ClientWithDetailsBuilder()
+				.id(id).clientName(clientName).lastName("Last").phoneNumber("0501234567").build()).block();
+		assertThat(added.getClientName()).isEqualTo(clientName);
+	}
+
+	private static List<String> names(List<ClientBoundaryBase> clients) {
+		return clients.stream().map(ClientBoundaryBase::getClientName).collect(Collectors.toList());
+	}
+
+}
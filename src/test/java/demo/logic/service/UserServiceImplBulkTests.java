@@ -0,0 +1,129 @@
+package demo.logic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.boundary.UserBoundaryBaseWithPassword;
+import demo.config.ReadYourWritesTracker;
+import demo.data.repository.UserRepository;
+import demo.logic.service.interfaces.MailService;
+import demo.logic.utilities.PasswordHash;
+import demo.logic.utilities.PasswordHistory;
+import demo.logic.utilities.PasswordManager;
+import demo.logic.utilities.PerformanceMonitor;
+import demo.logic.utilities.TableExporter;
+import demo.logic.utilities.XMLReader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// The /users/bulk pipeline on H2, with the password work stubbed out
+class UserServiceImplBulkTests {
+	private final ObjectMapper objectMapper = new ObjectMapper();
+	private JdbcTemplate jdbcTemplate;
+	private UserServiceImpl userService;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:user-bulk;MODE=MySQL;DB_CLOSE_DELAY=-1",
+				"sa", "");
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS users (username VARCHAR(255) PRIMARY KEY,"
+				+ " creation_timestamp TIMESTAMP, email VARCHAR(255), number_of_login_attempt INT,"
+				+ " password_hash BINARY(21), password_salt BINARY(16), password_history VARBINARY(1024))");
+		this.jdbcTemplate.execute("DELETE FROM users");
+
+		PasswordManager passwordManager = mock(PasswordManager.class);
+		when(passwordManager.validatePasswordForSignup(any())).thenAnswer(invocation -> {
+			String password = invocation.<UserBoundaryBaseWithPassword>getArgument(0).getPassword();
+			return password != null && password.length() >= 10;
+		});
+		when(passwordManager.newParameters(any())).thenAnswer(invocation -> new PasswordHash(
+				PasswordHash.LEGACY_ALGORITHM, PasswordHash.LEGACY_ITERATIONS, PasswordHash.LEGACY_KEY_LENGTH,
+				invocation.getArgument(0), new byte[0]));
+		when(passwordManager.hash(anyString(), any(PasswordHash.class))).thenAnswer(invocation -> {
+			PasswordHash parameters = invocation.getArgument(1);
+			return new PasswordHash(parameters.getAlgorithm(), parameters.getIterations(), parameters.getKeyLength(),
+					parameters.getSalt(), new byte[PasswordHash.LEGACY_KEY_LENGTH / 8]);
+		});
+		when(passwordManager.newPasswordHistory(any())).thenReturn(PasswordHistory.empty(3));
+
+		DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(dataSource);
+		this.userService = new UserServiceImpl(mock(UserRepository.class),
+				new XMLReader("config-test.xml", 0, event -> {
+				}), passwordManager, mock(EntityManager.class), mock(MailService.class), transactionManager,
+				new TransactionTemplate(transactionManager), mock(ReadYourWritesTracker.class),
+				mock(LoginAttemptTracker.class), mock(UserCache.class), mock(UsernameFilter.class),
+				mock(TableExporter.class), this.jdbcTemplate, this.objectMapper,
+				new PerformanceMonitor(new SimpleMeterRegistry()), new SimpleMeterRegistry());
+		ReflectionTestUtils.invokeMethod(this.userService, "init");
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.userService.close();
+	}
+
+	@Test
+	void reportsEveryRow() throws Exception {
+		this.jdbcTemplate.update("INSERT INTO users (username, email) VALUES ('taken', 'taken@communicationltd.com')");
+		String body = "{\"username\":\"alice\",\"password\":\"Aa1!Aa1!Aa1!\",\"email\":\"alice@communicationltd.com\"}\n"
+				+ "{\"username\":\"taken\",\"password\":\"Aa1!Aa1!Aa1!\",\"email\":\"taken@communicationltd.com\"}\n"
+				+ "{\"username\":\"bob\",\"password\":\"short\",\"email\":\"bob@communicationltd.com\"}\n"
+				+ "{\"username\":\"alice\",\"password\":\"Aa1!Aa1!Aa1!\",\"email\":\"alice@communicationltd.com\"}\n";
+
+		JsonNode report = addUsers(body);
+
+		assertThat(statuses(report)).containsExactlyInAnyOrder("1:DUPLICATE", "3:DUPLICATE", "0:CREATED", "2:INVALID");
+		assertThat(this.jdbcTemplate.queryForList("SELECT username FROM users ORDER BY username", String.class))
+				.containsExactly("alice", "taken");
+		assertThat(this.jdbcTemplate.queryForObject("SELECT password_hash FROM users WHERE username = 'alice'",
+				byte[].class)).hasSize(PasswordHash.STORED_LENGTH);
+	}
+
+	@Test
+	void malformedInputKeepsTheRowsReadBefore() throws Exception {
+		String body = "{\"username\":\"alice\",\"password\":\"Aa1!Aa1!Aa1!\",\"email\":\"alice@communicationltd.com\"}\n"
+				+ "{\"username\":";
+
+		JsonNode report = addUsers(body);
+
+		assertThat(statuses(report)).containsExactlyInAnyOrder("0:CREATED", "1:INVALID");
+		assertThat(this.jdbcTemplate.queryForList("SELECT username FROM users", String.class)).containsExactly("alice");
+	}
+
+	private JsonNode addUsers(String body) throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		this.userService.addUsers(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), outputStream);
+		return this.objectMapper.readTree(outputStream.toByteArray());
+	}
+
+	private static List<String> statuses(JsonNode report) {
+		List<String> statuses = new ArrayList<>();
+		report.get("results").forEach(row -> statuses.add(row.get("index").asLong() + ":" + row.get("status").asText()));
+		return statuses;
+	}
+
+}
@@ -0,0 +1,100 @@
+package demo.logic.service;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import javax.persistence.EntityManager;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import demo.boundary.UserBoundaryBaseWithPassword;
+import demo.config.ReadYourWritesTracker;
+import demo.data.UserEntity;
+import demo.data.repository.UserRepository;
+import demo.logic.exceptions.InvalidUsernameOrPasswordException;
+import demo.logic.service.interfaces.MailService;
+import demo.logic.utilities.HashingPriority;
+import demo.logic.utilities.PasswordHash;
+import demo.logic.utilities.PasswordManager;
+import demo.logic.utilities.PerformanceMonitor;
+import demo.logic.utilities.TableExporter;
+import demo.logic.utilities.XMLReader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+// Secure mode login with the hashing stubbed out, the stored hash is all zeros
+class UserServiceImplLoginTests {
+	private final PasswordManager passwordManager = mock(PasswordManager.class);
+	private final LoginAttemptTracker loginAttemptTracker = mock(LoginAttemptTracker.class);
+	private final UserCache userCache = mock(UserCache.class);
+	private UserServiceImpl userService;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		UserEntity alice = UserEntity.builder().username("alice").numberOfLoginAttempt(1).build();
+		when(this.userCache.get(eq("alice"), any())).thenReturn(alice);
+		when(this.passwordManager.getStoredHash(alice)).thenReturn(hash(0));
+		when(this.passwordManager.hash(eq("wrong"), any(PasswordHash.class), eq(HashingPriority.LOGIN)))
+				.thenReturn(hash(1));
+		when(this.loginAttemptTracker.getAttempts(anyString(), eq(1))).thenReturn(1);
+
+		PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+		this.userService = new UserServiceImpl(mock(UserRepository.class),
+				new XMLReader("config-test.xml", 0, event -> {
+				}), this.passwordManager, mock(EntityManager.class), mock(MailService.class), transactionManager,
+				new TransactionTemplate(transactionManager), mock(ReadYourWritesTracker.class),
+				this.loginAttemptTracker, this.userCache, mock(UsernameFilter.class), mock(TableExporter.class),
+				mock(JdbcTemplate.class), new ObjectMapper(), new PerformanceMonitor(new SimpleMeterRegistry()),
+				new SimpleMeterRegistry());
+		ReflectionTestUtils.invokeMethod(this.userService, "init");
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.userService.close();
+	}
+
+	@Test
+	void wrongPasswordCountsTowardsTheLockout() {
+		assertThatThrownBy(() -> this.userService.login(login("alice", "wrong")))
+				.isInstanceOf(InvalidUsernameOrPasswordException.class);
+
+		verify(this.loginAttemptTracker).recordFailure("alice", 1);
+	}
+
+	@Test
+	void unknownUserIsNotTracked() {
+		assertThatThrownBy(() -> this.userService.login(login("mallory", "wrong")))
+				.isInstanceOf(InvalidUsernameOrPasswordException.class);
+
+		verify(this.loginAttemptTracker, never()).recordFailure(anyString(), anyInt());
+	}
+
+	private static UserBoundaryBaseWithPassword login(String username, String password) {
+		return UserBoundaryBaseWithPassword.userWithPasswordBuilder().username(username).password(password).build();
+	}
+
+	private static PasswordHash hash(int fill) {
+		byte[] bytes = new byte[PasswordHash.LEGACY_KEY_LENGTH / 8];
+		Arrays.fill(bytes, (byte) fill);
+		return new PasswordHash(PasswordHash.LEGACY_ALGORITHM, PasswordHash.LEGACY_ITERATIONS,
+				PasswordHash.LEGACY_KEY_LENGTH, new byte[16], bytes);
+	}
+
+}
@@ -0,0 +1,104 @@
+package demo.logic.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.nio.file.Path;
+import java.sql.Timestamp;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import demo.config.CacheConfig;
+import demo.config.Configurations;
+import demo.config.DBConfig;
+import demo.config.Permission;
+import demo.logic.service.interfaces.CacheInvalidationBus;
+import demo.logic.utilities.XMLReader;
+
+class UsernameFilterTests {
+	private DataSource dataSource;
+	private JdbcTemplate jdbcTemplate;
+	private XMLReader xmlReader;
+
+	@BeforeEach
+	void setUp(@TempDir Path directory) {
+		this.dataSource = new DriverManagerDataSource("jdbc:h2:mem:username-filter;MODE=MySQL;DB_CLOSE_DELAY=-1",
+				"sa", "");
+		this.jdbcTemplate = new JdbcTemplate(this.dataSource);
+		this.jdbcTemplate.execute(
+				"CREATE TABLE IF NOT EXISTS users (username VARCHAR(255) PRIMARY KEY, creation_timestamp TIMESTAMP)");
+		this.jdbcTemplate.execute("DELETE FROM users");
+		CacheConfig cacheConfig = mock(CacheConfig.class);
+		when(cacheConfig.getUsernameFilterExpectedUsers()).thenReturn(1000);
+		when(cacheConfig.getUsernameFilterFile()).thenReturn(directory.resolve("username-filter.bin").toString());
+		Configurations configurations = mock(Configurations.class);
+		when(configurations.getConfiguration(Permission.CACHE, CacheConfig.class)).thenReturn(cacheConfig);
+		when(configurations.getConfiguration(Permission.DB, DBConfig.class)).thenReturn(mock(DBConfig.class));
+		this.xmlReader = mock(XMLReader.class);
+		when(this.xmlReader.loadConfigFile()).thenReturn(configurations);
+	}
+
+	@Test
+	void newUsernamesAreCertainlyFree() throws Exception {
+		insert("alice", 1000);
+
+		UsernameFilter filter = start();
+
+		assertThat(filter.mightContain("alice")).isTrue();
+		assertThat(filter.mightContain("bob")).isFalse();
+		filter.add("bob");
+		assertThat(filter.mightContain("bob")).isTrue();
+	}
+
+	@Test
+	void savedFilterIsReusedForTheSameDatabase() throws Exception {
+		insert("alice", 1000);
+		insert("bob", 2000);
+		start().close();
+		// Still in the saved filter, a rescan would not find it
+		this.jdbcTemplate.update("DELETE FROM users WHERE username = 'alice'");
+
+		assertThat(start().mightContain("alice")).isTrue();
+	}
+
+	@Test
+	void savedFilterIsIgnoredWhenItsNewestUserIsGone() throws Exception {
+		insert("alice", 1000);
+		insert("bob", 2000);
+		start().close();
+		// As after restoring a backup taken before bob signed up
+		this.jdbcTemplate.update("DELETE FROM users");
+		insert("carol", 1500);
+
+		UsernameFilter filter = start();
+
+		assertThat(filter.mightContain("alice")).isFalse();
+		assertThat(filter.mightContain("carol")).isTrue();
+	}
+
+	private UsernameFilter start() throws InterruptedException {
+		UsernameFilter filter = new UsernameFilter(this.xmlReader, this.jdbcTemplate,
+				new DataSourceTransactionManager(this.dataSource), mock(CacheInvalidationBus.class));
+		ReflectionTestUtils.invokeMethod(filter, "init");
+		for (int i = 0; i < 100 && !(Boolean) ReflectionTestUtils.getField(filter, "ready"); i++) {
+			Thread.sleep(50);
+		}
+		assertThat((Boolean) ReflectionTestUtils.getField(filter, "ready")).isTrue();
+		return filter;
+	}
+
+	private void insert(String username, long timestamp) {
+		this.jdbcTemplate.update("INSERT INTO users (username, creation_timestamp) VALUES (?, ?)", username,
+				new Timestamp(timestamp));
+	}
+
+}
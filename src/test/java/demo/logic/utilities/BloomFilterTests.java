@@ -0,0 +1,60 @@
+package demo.logic.utilities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import org.junit.jupiter.api.Test;
+
+class BloomFilterTests {
+
+	@Test
+	void addedValuesAreAlwaysFound() {
+		BloomFilter filter = BloomFilter.create(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.add("user" + i);
+		}
+
+		for (int i = 0; i < 10_000; i++) {
+			assertThat(filter.mightContain("user" + i)).isTrue();
+		}
+	}
+
+	@Test
+	void falsePositivesStayNearTheConfiguredRate() {
+		BloomFilter filter = BloomFilter.create(10_000, 0.01);
+		for (int i = 0; i < 10_000; i++) {
+			filter.add("user" + i);
+		}
+
+		int falsePositives = 0;
+		for (int i = 0; i < 100_000; i++) {
+			if (filter.mightContain("other" + i)) {
+				falsePositives++;
+			}
+		}
+		assertThat(falsePositives).isLessThan(2_000);
+	}
+
+	@Test
+	void savedFilterIsReadBack() throws IOException {
+		BloomFilter filter = BloomFilter.create(1000, 0.01);
+		filter.add("alice");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream output = new DataOutputStream(bytes)) {
+			filter.writeTo(output);
+		}
+
+		BloomFilter read = BloomFilter.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+		assertThat(read.mightContain("alice")).isTrue();
+		assertThat(read.mightContain("bob")).isFalse();
+		assertThat(read.hasSameSize(1000, 0.01)).isTrue();
+		assertThat(read.hasSameSize(100_000, 0.01)).isFalse();
+	}
+
+}
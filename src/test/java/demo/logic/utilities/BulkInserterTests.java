@@ -0,0 +1,71 @@
+package demo.logic.utilities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import demo.boundary.BulkRowStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class BulkInserterTests {
+	private JdbcTemplate jdbcTemplate;
+	private BulkInserter<String> bulkInserter;
+	private final List<String> report = new ArrayList<>();
+
+	@BeforeEach
+	void setUp() {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:bulk-inserter;MODE=MySQL;DB_CLOSE_DELAY=-1",
+				"sa", "");
+		this.jdbcTemplate = new JdbcTemplate(dataSource);
+		this.jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS items (id VARCHAR(255) PRIMARY KEY)");
+		this.jdbcTemplate.execute("DELETE FROM items");
+		this.bulkInserter = new BulkInserter<>(this.jdbcTemplate, new DataSourceTransactionManager(dataSource),
+				new PerformanceMonitor(new SimpleMeterRegistry()), "items", "id", "INSERT INTO items (id) VALUES (?)",
+				(preparedStatement, id) -> preparedStatement.setString(1, id));
+	}
+
+	@Test
+	void selectExistingFindsTakenKeys() {
+		this.jdbcTemplate.update("INSERT INTO items (id) VALUES ('b')");
+
+		assertThat(this.bulkInserter.selectExisting(Arrays.asList("a", "b", "c"))).containsExactly("b");
+		assertThat(this.bulkInserter.selectExisting(new ArrayList<>())).isEmpty();
+	}
+
+	@Test
+	void batchInsertsEveryRow() throws Exception {
+		List<String> rows = Arrays.asList("a", "b", "c");
+
+		this.bulkInserter.insert(rows, (position, status, message) -> this.report.add(rows.get(position) + ":" + status));
+
+		assertThat(this.report).containsExactly("a:CREATED", "b:CREATED", "c:CREATED");
+		assertThat(count()).isEqualTo(3);
+	}
+
+	@Test
+	void keyTakenAfterTheCheckFallsBackToOneByOne() throws Exception {
+		// Inserted by someone else between selectExisting and the batch
+		this.jdbcTemplate.update("INSERT INTO items (id) VALUES ('b')");
+		List<String> rows = Arrays.asList("a", "b", "c");
+
+		this.bulkInserter.insert(rows, (position, status, message) -> this.report.add(rows.get(position) + ":" + status));
+
+		assertThat(this.report).containsExactly("a:CREATED", "b:" + BulkRowStatus.DUPLICATE, "c:CREATED");
+		assertThat(count()).isEqualTo(3);
+	}
+
+	private int count() {
+		return this.jdbcTemplate.queryForObject("SELECT COUNT(*) FROM items", Integer.class);
+	}
+
+}
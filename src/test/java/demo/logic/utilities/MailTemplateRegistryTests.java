@@ -0,0 +1,52 @@
+package demo.logic.utilities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import freemarker.cache.StringTemplateLoader;
+import freemarker.template.Configuration;
+
+class MailTemplateRegistryTests {
+	private StringTemplateLoader templateLoader;
+	private MailTemplateRegistry registry;
+
+	@BeforeEach
+	void setUp() {
+		Configuration configuration = new Configuration(Configuration.VERSION_2_3_30);
+		this.templateLoader = new StringTemplateLoader();
+		configuration.setTemplateLoader(this.templateLoader);
+		this.registry = new MailTemplateRegistry(configuration);
+	}
+
+	@Test
+	void plainInterpolationsAreEscaped() throws Exception {
+		register("<p>Your new password is ${newPassword}</p>");
+
+		assertThat(this.registry.render("mail", "a<b&c")).isEqualTo("<p>Your new password is a&lt;b&amp;c</p>");
+		assertThat(this.registry.render("mail", "Aa1!")).isEqualTo("<p>Your new password is Aa1!</p>");
+	}
+
+	@Test
+	void expressionsOfTheVariableAreRenderedEveryTime() throws Exception {
+		register("<p>${newPassword?length} characters</p>");
+
+		assertThat(this.registry.render("mail", "abc")).isEqualTo("<p>3 characters</p>");
+		assertThat(this.registry.render("mail", "abcdefgh")).isEqualTo("<p>8 characters</p>");
+	}
+
+	@Test
+	void directivesAreRenderedEveryTime() throws Exception {
+		register("<#if newPassword?starts_with(\"A\")>upper<#else>other</#if> ${newPassword}");
+
+		assertThat(this.registry.render("mail", "Aa1!")).isEqualTo("upper Aa1!");
+		assertThat(this.registry.render("mail", "aa1!")).isEqualTo("other aa1!");
+	}
+
+	private void register(String source) {
+		this.templateLoader.putTemplate("mail.ftlh", source);
+		this.registry.register("mail", "mail.ftlh", "newPassword");
+	}
+
+}
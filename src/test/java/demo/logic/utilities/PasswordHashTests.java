@@ -0,0 +1,78 @@
+package demo.logic.utilities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+class PasswordHashTests {
+	private static final byte[] SALT = new byte[16];
+
+	@Test
+	void storedFormIsFixedWidth() {
+		PasswordHash passwordHash = hash("PBKDF2WithHmacSHA256", 310_000, 7);
+
+		byte[] stored = passwordHash.encodeStored();
+
+		assertThat(stored).hasSize(PasswordHash.STORED_LENGTH);
+		PasswordHash read = PasswordHash.readStored(stored, 0, SALT);
+		assertThat(read.getAlgorithm()).isEqualTo("PBKDF2WithHmacSHA256");
+		assertThat(read.getIterations()).isEqualTo(310_000);
+		assertThat(read.matches(passwordHash)).isTrue();
+	}
+
+	@Test
+	void storedFormSurvivesABinaryColumn() {
+		DataSource dataSource = new DriverManagerDataSource("jdbc:h2:mem:password-hash;MODE=MySQL;DB_CLOSE_DELAY=-1",
+				"sa", "");
+		JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+		jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS hashes (id INT PRIMARY KEY, password_hash BINARY("
+				+ PasswordHash.STORED_LENGTH + "), password_salt BINARY(16))");
+		jdbcTemplate.execute("DELETE FROM hashes");
+		PasswordHash passwordHash = hash("PBKDF2WithHmacSHA512", 210_000, -1);
+		jdbcTemplate.update("INSERT INTO hashes VALUES (1, ?, ?)", passwordHash.encodeStored(), SALT);
+
+		byte[] stored = jdbcTemplate.queryForObject("SELECT password_hash FROM hashes WHERE id = 1", byte[].class);
+		byte[] salt = jdbcTemplate.queryForObject("SELECT password_salt FROM hashes WHERE id = 1", byte[].class);
+
+		assertThat(PasswordHash.readStored(stored, 0, salt).matches(passwordHash)).isTrue();
+	}
+
+	@Test
+	void otherHashDoesNotMatch() {
+		assertThat(hash(PasswordHash.LEGACY_ALGORITHM, 1000, 1).matches(hash(PasswordHash.LEGACY_ALGORITHM, 1000, 2)))
+				.isFalse();
+		assertThat(hash(PasswordHash.LEGACY_ALGORITHM, 1000, 1).matches(hash(PasswordHash.LEGACY_ALGORITHM, 2000, 1)))
+				.isFalse();
+	}
+
+	@Test
+	void legacyHashIsDecodedWithTheDefaultParameters() {
+		byte[] legacy = new byte[PasswordHash.LEGACY_KEY_LENGTH / 8];
+
+		PasswordHash decoded = PasswordHash.decode(legacy, SALT);
+
+		assertThat(decoded.getAlgorithm()).isEqualTo(PasswordHash.LEGACY_ALGORITHM);
+		assertThat(decoded.getIterations()).isEqualTo(PasswordHash.LEGACY_ITERATIONS);
+	}
+
+	@Test
+	void onlyShortHashesHaveAStoredForm() {
+		PasswordHash wide = new PasswordHash(PasswordHash.LEGACY_ALGORITHM, 1000, 256, SALT, new byte[32]);
+
+		assertThatThrownBy(wide::encodeStored).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	private static PasswordHash hash(String algorithm, int iterations, int fill) {
+		byte[] hash = new byte[PasswordHash.LEGACY_KEY_LENGTH / 8];
+		Arrays.fill(hash, (byte) fill);
+		return new PasswordHash(algorithm, iterations, PasswordHash.LEGACY_KEY_LENGTH, SALT, hash);
+	}
+
+}
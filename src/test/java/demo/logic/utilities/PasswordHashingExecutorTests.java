@@ -0,0 +1,81 @@
+package demo.logic.utilities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import demo.config.Configurations;
+import demo.config.PasswordConfig;
+import demo.config.Permission;
+import demo.logic.exceptions.ServiceOverloadedException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+class PasswordHashingExecutorTests {
+	private final CountDownLatch release = new CountDownLatch(1);
+	private PasswordHashingExecutor executor;
+
+	@BeforeEach
+	void setUp() throws InterruptedException {
+		PasswordConfig passwordConfig = mock(PasswordConfig.class);
+		when(passwordConfig.getHashingThreads()).thenReturn(1);
+		when(passwordConfig.getHashingQueueCapacity()).thenReturn(8);
+		when(passwordConfig.getHashingWaitTimeout()).thenReturn(100L);
+		Configurations configurations = mock(Configurations.class);
+		when(configurations.getConfiguration(Permission.PASSWORD, PasswordConfig.class)).thenReturn(passwordConfig);
+		XMLReader xmlReader = mock(XMLReader.class);
+		when(xmlReader.loadConfigFile()).thenReturn(configurations);
+		this.executor = new PasswordHashingExecutor(xmlReader, new SimpleMeterRegistry());
+		ReflectionTestUtils.invokeMethod(this.executor, "init");
+		// Keep the only thread busy so everything else stays queued
+		CountDownLatch started = new CountDownLatch(1);
+		this.executor.submit(HashingPriority.LOGIN, () -> {
+			started.countDown();
+			try {
+				this.release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		started.await();
+	}
+
+	@AfterEach
+	void tearDown() {
+		this.release.countDown();
+		this.executor.close();
+	}
+
+	@Test
+	void rehashesDoNotTakeTheLoginCapacity() {
+		assertThat(this.executor.submit(HashingPriority.REHASH, () -> {
+		})).isTrue();
+		assertThat(this.executor.submit(HashingPriority.REHASH, () -> {
+		})).isTrue();
+		assertThat(this.executor.submit(HashingPriority.REHASH, () -> {
+		})).isFalse();
+
+		for (int i = 0; i < 8; i++) {
+			assertThat(this.executor.submit(HashingPriority.LOGIN, () -> {
+			})).isTrue();
+		}
+		assertThat(this.executor.submit(HashingPriority.LOGIN, () -> {
+		})).isFalse();
+		assertThat(this.executor.submit(HashingPriority.SIGNUP, () -> {
+		})).isTrue();
+	}
+
+	@Test
+	void waitingIsBounded() {
+		assertThatThrownBy(() -> this.executor.execute(HashingPriority.LOGIN, () -> "hash"))
+				.isInstanceOf(ServiceOverloadedException.class);
+	}
+
+}
@@ -0,0 +1,90 @@
+package demo.logic.utilities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+class PasswordHistoryTests {
+	private static final byte[] SALT = new byte[16];
+
+	@Test
+	void emptyHistoryHasOnlyTheHeader() {
+		PasswordHistory history = PasswordHistory.empty(3);
+
+		assertThat(history.size()).isZero();
+		assertThat(history.getData()).hasSize(4 + 3 * PasswordHash.STORED_LENGTH);
+	}
+
+	@Test
+	void oldestEntryIsDroppedWhenFull() {
+		PasswordHistory history = PasswordHistory.empty(3);
+		for (int i = 1; i <= 4; i++) {
+			history = history.add(hash(i), 3);
+		}
+
+		assertThat(history.size()).isEqualTo(3);
+		assertThat(history.matches(0, hash(2).getHash())).isTrue();
+		assertThat(history.matches(1, hash(3).getHash())).isTrue();
+		assertThat(history.matches(2, hash(4).getHash())).isTrue();
+		assertThat(history.matches(0, hash(1).getHash())).isFalse();
+		assertThat(history.getIterations(2)).isEqualTo(4);
+		assertThat(history.getAlgorithm(2)).isEqualTo(PasswordHash.LEGACY_ALGORITHM);
+	}
+
+	@Test
+	void addLeavesTheOriginalUnchanged() {
+		PasswordHistory history = PasswordHistory.empty(2).add(hash(1), 2);
+		byte[] before = history.getData().clone();
+
+		history.add(hash(2), 2);
+
+		assertThat(history.getData()).isEqualTo(before);
+	}
+
+	@Test
+	void shrinkingKeepsTheNewestEntries() {
+		PasswordHistory history = PasswordHistory.empty(4);
+		for (int i = 1; i <= 4; i++) {
+			history = history.add(hash(i), 4);
+		}
+
+		history = history.add(hash(5), 2);
+
+		assertThat(history.size()).isEqualTo(2);
+		assertThat(history.matches(0, hash(4).getHash())).isTrue();
+		assertThat(history.matches(1, hash(5).getHash())).isTrue();
+	}
+
+	@Test
+	void storedDataIsReadBack() {
+		PasswordHistory history = PasswordHistory.empty(3).add(hash(1), 3).add(hash(2), 3);
+
+		PasswordHistory read = PasswordHistory.wrap(history.getData().clone());
+
+		assertThat(read.size()).isEqualTo(2);
+		assertThat(read.matches(1, hash(2).getHash())).isTrue();
+	}
+
+	@Test
+	void unknownDataIsRejected() {
+		byte[] data = PasswordHistory.empty(3).getData();
+
+		assertThatThrownBy(() -> PasswordHistory.wrap(Arrays.copyOf(data, data.length - 1)))
+				.isInstanceOf(IllegalArgumentException.class);
+		data[0] = 2;
+		assertThatThrownBy(() -> PasswordHistory.wrap(data)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> PasswordHistory.empty(3).getIterations(0))
+				.isInstanceOf(IndexOutOfBoundsException.class);
+	}
+
+	// A distinct hash per number, with the number as its iteration count
+	private static PasswordHash hash(int number) {
+		byte[] hash = new byte[PasswordHash.LEGACY_KEY_LENGTH / 8];
+		Arrays.fill(hash, (byte) number);
+		return new PasswordHash(PasswordHash.LEGACY_ALGORITHM, number, PasswordHash.LEGACY_KEY_LENGTH, SALT, hash);
+	}
+
+}
@@ -0,0 +1,46 @@
+package demo.logic.utilities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import demo.logic.utilities.PerformanceMonitor.Phase;
+
+class RequestTimingsTests {
+
+	@AfterEach
+	void tearDown() {
+		RequestTimings.end();
+	}
+
+	@Test
+	void nestedPhasesAreNotCountedTwice() {
+		RequestTimings timings = RequestTimings.begin();
+		timings.enter();
+		timings.enter();
+		timings.exit(Phase.QUERY, 3_000_000);
+		timings.enter();
+		timings.exit(Phase.QUERY, 1_000_000);
+		timings.exit(Phase.TRANSACTION, 5_000_000);
+		timings.enter();
+		timings.exit(Phase.PASSWORD, 2_000_000);
+
+		assertThat(timings.toServerTiming()).startsWith(
+				"password;dur=2.0;desc=\"1\", query;dur=4.0;desc=\"2\", transaction;dur=1.0;desc=\"1\", total;dur=");
+	}
+
+	@Test
+	void queueWaitIsTakenOffTheEnclosingPhase() {
+		RequestTimings timings = RequestTimings.begin();
+		timings.enter();
+		timings.addQueueWait(4_000_000);
+		timings.enter();
+		timings.exit(Phase.PASSWORD, 3_000_000);
+		timings.exit(Phase.TRANSACTION, 10_000_000);
+
+		assertThat(timings.toServerTiming()).startsWith(
+				"password;dur=3.0;desc=\"1\", transaction;dur=3.0;desc=\"1\", queue;dur=4.0;desc=\"1\", total;dur=");
+	}
+
+}
@@ -0,0 +1,39 @@
+package demo.logic.utilities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.jupiter.api.Test;
+
+class RowWriterTests {
+
+	@Test
+	void csvQuotesOnlyWhatNeedsIt() throws Exception {
+		String csv = write(ExportFormat.CSV, new String[] { "alice", "plain" },
+				new String[] { "a,b", "say \"hi\"" }, new String[] { "two\nlines", null });
+
+		assertThat(csv).isEqualTo("username,email\r\n" + "alice,plain\r\n" + "\"a,b\",\"say \"\"hi\"\"\"\r\n"
+				+ "\"two\nlines\",\r\n");
+	}
+
+	@Test
+	void ndjsonWritesOneObjectPerLine() throws Exception {
+		String ndjson = write(ExportFormat.NDJSON, new String[] { "alice", "a\"b" }, new String[] { "bob", null });
+
+		assertThat(ndjson).isEqualTo("{\"username\":\"alice\",\"email\":\"a\\\"b\"}\n"
+				+ "{\"username\":\"bob\",\"email\":null}\n");
+	}
+
+	private static String write(ExportFormat format, String[]... rows) throws Exception {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (RowWriter rowWriter = new RowWriter(format, outputStream, "username", "email")) {
+			for (String[] row : rows) {
+				rowWriter.writeRow(row);
+			}
+		}
+		return new String(outputStream.toByteArray(), StandardCharsets.UTF_8);
+	}
+
+}
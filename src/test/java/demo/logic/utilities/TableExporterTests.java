@@ -0,0 +1,39 @@
+package demo.logic.utilities;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import demo.config.Configurations;
+import demo.config.DBConfig;
+import demo.config.Permission;
+import demo.logic.exceptions.ServiceOverloadedException;
+
+class TableExporterTests {
+
+	@Test
+	void exportsAboveTheLimitAreRejected() {
+		DBConfig dbConfig = mock(DBConfig.class);
+		when(dbConfig.getMaxConcurrentExports()).thenReturn(2);
+		Configurations configurations = mock(Configurations.class);
+		when(configurations.getConfiguration(Permission.DB, DBConfig.class)).thenReturn(dbConfig);
+		XMLReader xmlReader = mock(XMLReader.class);
+		when(xmlReader.loadConfigFile()).thenReturn(configurations);
+		TableExporter tableExporter = new TableExporter(mock(JdbcTemplate.class),
+				mock(PlatformTransactionManager.class), xmlReader);
+
+		TableExporter.Permit first = tableExporter.reserve();
+		tableExporter.reserve();
+		assertThatThrownBy(tableExporter::reserve).isInstanceOf(ServiceOverloadedException.class);
+
+		first.close();
+		first.close();
+		tableExporter.reserve();
+		assertThatThrownBy(tableExporter::reserve).isInstanceOf(ServiceOverloadedException.class);
+	}
+
+}
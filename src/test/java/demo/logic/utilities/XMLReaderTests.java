@@ -0,0 +1,44 @@
+package demo.logic.utilities;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.util.ResourceUtils;
+
+import demo.config.Configurations;
+import demo.config.ConfigurationsChangedEvent;
+
+class XMLReaderTests {
+
+	@Test
+	void rejectedReloadRestoresThePreviousSnapshot(@TempDir Path directory) throws Exception {
+		Path configFile = directory.resolve("config.xml");
+		Files.copy(ResourceUtils.getFile("classpath:config-test.xml").toPath(), configFile);
+		List<Configurations> published = new ArrayList<>();
+		XMLReader xmlReader = new XMLReader(ResourceUtils.FILE_URL_PREFIX + configFile, 0, event -> {
+			Configurations configurations = ((ConfigurationsChangedEvent) event).getConfigurations();
+			published.add(configurations);
+			if (published.size() == 1) {
+				throw new IllegalArgumentException("Invalid symbols");
+			}
+		});
+		Configurations previous = xmlReader.loadConfigFile();
+
+		assertThatThrownBy(() -> ReflectionTestUtils.invokeMethod(xmlReader, "reload"))
+				.isInstanceOf(IllegalArgumentException.class);
+
+		assertThat(xmlReader.loadConfigFile()).isSameAs(previous);
+		assertThat(published).hasSize(2);
+		assertThat(published.get(0)).isNotSameAs(previous);
+		assertThat(published.get(1)).isSameAs(previous);
+	}
+
+}
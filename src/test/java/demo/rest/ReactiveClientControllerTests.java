@@ -0,0 +1,96 @@
+package demo.rest;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import demo.boundary.ClientBoundaryAddNewClient;
+import demo.boundary.ClientBoundaryBase;
+import demo.boundary.PageBoundary;
+import demo.logic.exceptions.InvalidInputDataException;
+import demo.logic.service.interfaces.ReactiveClientService;
+import demo.logic.utilities.PageCursor;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+class ReactiveClientControllerTests {
+	private final ReactiveClientService clientService = mock(ReactiveClientService.class);
+	private WebTestClient webTestClient;
+
+	@BeforeEach
+	void setUp() {
+		this.webTestClient = WebTestClient.bindToController(new ReactiveClientController(this.clientService)).build();
+	}
+
+	@Test
+	void addClientPassesTheBodyOn() {
+		when(this.clientService.addNewClient(any())).thenReturn(Mono.just(new ClientBoundaryBase("Alice")));
+
+		this.webTestClient.post().uri("/addClient").contentType(MediaType.APPLICATION_JSON)
+				.bodyValue("{\"id\":\"1\",\"clientName\":\"Alice\",\"lastName\":\"Last\",\"phoneNumber\":\"0501234567\"}")
+				.exchange().expectStatus().isOk().expectBody().jsonPath("$.clientName").isEqualTo("Alice");
+		ArgumentCaptor<ClientBoundaryAddNewClient> added = ArgumentCaptor.forClass(ClientBoundaryAddNewClient.class);
+		verify(this.clientService).addNewClient(added.capture());
+		assertThat(added.getValue().getId()).isEqualTo("1");
+		assertThat(added.getValue().getPhoneNumber()).isEqualTo("0501234567");
+	}
+
+	@Test
+	void getAllReturnsThePageAndItsCursor() {
+		when(this.clientService.getAll(null, PageCursor.DEFAULT_PAGE_SIZE)).thenReturn(Mono.just(new PageBoundary<>(
+				Arrays.asList(new ClientBoundaryBase(null), new ClientBoundaryBase("Alice")), "next-page")));
+
+		this.webTestClient.get().uri("/clients/getAll").exchange().expectStatus().isOk().expectBody()
+				.jsonPath("$.items[0].clientName").doesNotExist().jsonPath("$.items[1].clientName").isEqualTo("Alice")
+				.jsonPath("$.next").isEqualTo("next-page");
+	}
+
+	@Test
+	void getAllPassesCursorAndSize() {
+		when(this.clientService.getAll(eq("abc"), eq(10))).thenReturn(Mono.just(new PageBoundary<>(
+				Arrays.asList(new ClientBoundaryBase("Bob")), null)));
+
+		this.webTestClient.get().uri("/clients/getAll?cursor=abc&size=10").exchange().expectStatus().isOk()
+				.expectBody().jsonPath("$.items[0].clientName").isEqualTo("Bob").jsonPath("$.next").doesNotExist();
+	}
+
+	@Test
+	void failedPageIsAnError() {
+		when(this.clientService.getAll(any(), eq(10)))
+				.thenReturn(Mono.error(new InvalidInputDataException("Invalid cursor")));
+
+		this.webTestClient.get().uri("/clients/getAll?cursor=bad&size=10").exchange().expectStatus().is5xxServerError();
+	}
+
+	@Test
+	void streamWritesOneClientPerLine() {
+		when(this.clientService.streamAll())
+				.thenReturn(Flux.just(new ClientBoundaryBase("Alice"), new ClientBoundaryBase("Bob")));
+
+		String body = this.webTestClient.get().uri("/clients/stream").accept(MediaType.APPLICATION_NDJSON).exchange()
+				.expectStatus().isOk().expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+				.expectBody(String.class).returnResult().getResponseBody();
+
+		assertThat(body.trim().split("\n")).containsExactly("{\"clientName\":\"Alice\"}", "{\"clientName\":\"Bob\"}");
+	}
+
+	@Test
+	void deleteAllDeletes() {
+		when(this.clientService.deleteAll()).thenReturn(Mono.empty());
+
+		this.webTestClient.delete().uri("/clients/deleteAll").exchange().expectStatus().isOk();
+		verify(this.clientService).deleteAll();
+	}
+
+}
@@ -0,0 +1,83 @@
+package demo.rest;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import demo.boundary.UserBoundaryBase;
+import demo.logic.exceptions.ServiceOverloadedException;
+import demo.logic.exceptions.TooManyRequestsException;
+import demo.logic.service.RateLimiter;
+import demo.logic.service.interfaces.UserService;
+import demo.logic.utilities.TableExporter;
+
+class UserControllerTests {
+	private static final String LOGIN = "{\"username\":\"alice\",\"password\":\"Aa1!Aa1!Aa1!\"}";
+	private final UserService userService = mock(UserService.class);
+	private final RateLimiter rateLimiter = mock(RateLimiter.class);
+	private final TableExporter tableExporter = mock(TableExporter.class);
+	private MockMvc mockMvc;
+
+	@BeforeEach
+	void setUp() {
+		this.mockMvc = MockMvcBuilders
+				.standaloneSetup(new UserController(this.userService, this.rateLimiter, this.tableExporter)).build();
+	}
+
+	@Test
+	void allowedLoginReachesTheService() throws Exception {
+		when(this.userService.login(any())).thenReturn(UserBoundaryBase.builder().username("alice").build());
+
+		this.mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON).content(LOGIN)
+				.with(request -> {
+					request.setRemoteAddr("10.0.0.1");
+					return request;
+				})).andExpect(status().isOk()).andExpect(jsonPath("$.username").value("alice"));
+		verify(this.rateLimiter).check("10.0.0.1", "alice");
+	}
+
+	@Test
+	void limitedLoginGets429WithRetryAfter() throws Exception {
+		doThrow(new TooManyRequestsException(30)).when(this.rateLimiter).check(any(), eq("alice"));
+
+		this.mockMvc.perform(post("/login").contentType(MediaType.APPLICATION_JSON).content(LOGIN))
+				.andExpect(status().isTooManyRequests()).andExpect(header().string(HttpHeaders.RETRY_AFTER, "30"))
+				.andExpect(jsonPath("$.message").value("Too many attempts, please try again later"));
+		verify(this.userService, never()).login(any());
+	}
+
+	@Test
+	void limitedForgotPasswordGets429() throws Exception {
+		doThrow(new TooManyRequestsException(5)).when(this.rateLimiter).check(any(), eq("alice"));
+
+		this.mockMvc.perform(post("/forgotPassword").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"username\":\"alice\"}")).andExpect(status().isTooManyRequests())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"));
+		verify(this.userService, never()).forgotPassword(any());
+	}
+
+	@Test
+	void exportAboveTheLimitGets503() throws Exception {
+		when(this.tableExporter.reserve()).thenThrow(new ServiceOverloadedException(5));
+
+		this.mockMvc.perform(get("/users/export")).andExpect(status().isServiceUnavailable())
+				.andExpect(header().string(HttpHeaders.RETRY_AFTER, "5"));
+	}
+
+}